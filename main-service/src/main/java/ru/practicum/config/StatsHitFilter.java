@@ -0,0 +1,65 @@
+package ru.practicum.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.HitRequestDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Component
+public class StatsHitFilter extends OncePerRequestFilter {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final StatsClient statsClient;
+    private final String app;
+    private final List<String> paths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public StatsHitFilter(StatsClient statsClient,
+                          @Value("${stat-server.app:ewm-main-service}") String app,
+                          @Value("${stat-server.hit-paths:/events,/events/*}") List<String> paths) {
+        this.statsClient = statsClient;
+        this.app = app;
+        this.paths = paths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String uri = request.getRequestURI();
+        return paths.stream().noneMatch(path -> pathMatcher.match(path, uri));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        LocalDateTime timestamp = LocalDateTime.now();
+        long started = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            int durationMs = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - started) / 1_000_000);
+            statsClient.reportHit(new HitRequestDto(app,
+                    request.getRequestURI(),
+                    request.getRemoteAddr(),
+                    timestamp.format(FORMATTER),
+                    durationMs,
+                    status));
+        }
+    }
+}
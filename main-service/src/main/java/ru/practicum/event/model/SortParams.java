@@ -2,5 +2,6 @@ package ru.practicum.event.model;
 
 public enum SortParams {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    TRENDING
 }
@@ -24,6 +24,7 @@ import ru.practicum.request.model.Request;
 import ru.practicum.request.model.RequestStatus;
 import ru.practicum.request.storage.RequestRepository;
 import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.EntityScoreDto;
 import ru.practicum.stats.dto.StatsResponseDto;
 import ru.practicum.user.model.User;
 import ru.practicum.user.service.UserService;
@@ -172,26 +173,38 @@ public class EventService {
 
     public HashMap<Integer, Integer> getViewsList(List<Event> events) {
         HashMap<Integer, Integer> viewsMap = new HashMap<>();
-        List<String> uris = new ArrayList<>();
-        LocalDateTime start = LocalDateTime.now();
+        if (events.isEmpty()) {
+            return viewsMap;
+        }
+
+        Map<String, LocalDateTime> windows = new HashMap<>();
         for (Event event : events) {
-            uris.add("/events/" + event.getId());
-            if (event.getCreated().isBefore(start)) {
-                start = event.getCreated();
-            }
+            windows.put("/events/" + event.getId(), event.getCreated());
         }
-        List<StatsResponseDto> stats = statsClient.getStats(start, LocalDateTime.now(), uris, false);
-        for (StatsResponseDto statsResponseDto : stats) {
-            String uri = statsResponseDto.getUri();
-            if (!uri.equals("/events")) {
-                Integer eventId = Integer.valueOf(uri.substring(uri.lastIndexOf('/') + 1));
-                viewsMap.put(eventId, statsResponseDto.getHits());
+        Map<String, Long> views = statsClient.getViews(windows, false);
+        for (Event event : events) {
+            Long hits = views.get("/events/" + event.getId());
+            if (hits != null) {
+                viewsMap.put(event.getId(), hits.intValue());
             }
         }
 
         return viewsMap;
     }
 
+    public HashMap<Integer, Double> getTrendingScores(List<EventFullDto> events) {
+        HashMap<Integer, Double> scoresMap = new HashMap<>();
+        if (events.isEmpty()) {
+            return scoresMap;
+        }
+
+        List<Long> ids = events.stream().map(event -> event.getId().longValue()).collect(Collectors.toList());
+        for (EntityScoreDto score : statsClient.getScores("/events/{id}", ids, null)) {
+            scoresMap.put(score.getEntityId().intValue(), score.getScore());
+        }
+        return scoresMap;
+    }
+
     public HashMap<Integer, Integer> getConfirmedRequestsList(List<Event> events) {
         return requestRepository.getCountOfEventsRequestsMap(events.stream().map(Event::getId).collect(Collectors.toSet()));
     }
@@ -338,6 +351,11 @@ public class EventService {
             if (sort.equals(SortParams.VIEWS)) {
                 resultFull.sort(Comparator.comparingInt(EventFullDto::getViews));
             }
+
+            if (sort.equals(SortParams.TRENDING)) {
+                HashMap<Integer, Double> scoresMap = getTrendingScores(resultFull);
+                resultFull.sort(Comparator.comparingDouble((EventFullDto event) -> scoresMap.getOrDefault(event.getId(), 0.0)).reversed());
+            }
         }
 
         if (resultFull.isEmpty()) {
@@ -0,0 +1,187 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.dto.HitRequestDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Slf4j
+class AsyncHitSender {
+    private static final long STOP_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private final BlockingQueue<HitRequestDto> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long blockTimeoutMs;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<List<HitRequestDto>> sender;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    AsyncHitSender(int capacity,
+                   int batchSize,
+                   long flushIntervalMs,
+                   long blockTimeoutMs,
+                   OverflowPolicy overflowPolicy,
+                   Consumer<List<HitRequestDto>> sender) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.overflowPolicy = overflowPolicy;
+        this.sender = sender;
+        this.worker = new Thread(this::run, "stats-hit-sender");
+        this.worker.setDaemon(true);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+        join(worker);
+
+        List<HitRequestDto> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (rest.isEmpty()) {
+            return;
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        Thread drain = new Thread(() -> {
+            for (int from = 0; from < rest.size() && !Thread.currentThread().isInterrupted(); from += batchSize) {
+                if (!send(rest.subList(from, Math.min(from + batchSize, rest.size())), completed)) {
+                    return;
+                }
+            }
+        }, "stats-hit-drain");
+        drain.setDaemon(true);
+        drain.start();
+        join(drain);
+
+        int left;
+        synchronized (completed) {
+            left = rest.size() - completed.getAndSet(Integer.MIN_VALUE);
+        }
+        if (left > 0) {
+            drain.interrupt();
+            dropped.addAndGet(left);
+            log.warn("При остановке не отправлено {} запросов в сервис статистики", left);
+        }
+    }
+
+    void offer(HitRequestDto hitRequestDto) {
+        queued.incrementAndGet();
+        if (queue.offer(hitRequestDto)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                while (!queue.offer(hitRequestDto)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                break;
+            case BLOCK:
+                try {
+                    if (!queue.offer(hitRequestDto, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        dropped.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+            default:
+                dropped.incrementAndGet();
+        }
+    }
+
+    long getQueued() {
+        return queued.get();
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    int getBacklog() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<HitRequestDto> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                HitRequestDto first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void join(Thread thread) {
+        try {
+            thread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Counts the batch only while stop() still waits for it; returns false once stop() has given up.
+    private boolean send(List<HitRequestDto> batch, AtomicInteger completed) {
+        boolean delivered;
+        try {
+            sender.accept(batch);
+            delivered = true;
+        } catch (RuntimeException e) {
+            delivered = false;
+            log.warn("Не удалось отправить {} запросов в сервис статистики: {}", batch.size(), e.getMessage());
+        }
+        synchronized (completed) {
+            if (completed.get() < 0) {
+                return false;
+            }
+            completed.addAndGet(batch.size());
+            (delivered ? sent : dropped).addAndGet(batch.size());
+            return true;
+        }
+    }
+
+    private void send(List<HitRequestDto> batch) {
+        try {
+            sender.accept(batch);
+            sent.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            dropped.addAndGet(batch.size());
+            log.warn("Не удалось отправить {} запросов в сервис статистики: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.stats.client;
+
+public enum OverflowPolicy {
+    DROP_OLDEST,
+    DROP_NEWEST,
+    BLOCK
+}
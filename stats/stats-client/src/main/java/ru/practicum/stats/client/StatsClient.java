@@ -1,16 +1,36 @@
 package ru.practicum.stats.client;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.stats.dto.EntityScoreDto;
 import ru.practicum.stats.dto.HitRequestDto;
+import ru.practicum.stats.dto.StatsBinaryCodec;
+import ru.practicum.stats.dto.StatsQueryDto;
+import ru.practicum.stats.dto.ViewWindowDto;
+import ru.practicum.stats.dto.ViewsRequestDto;
 import ru.practicum.stats.dto.StatsResponseDto;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -18,14 +38,48 @@ import java.util.*;
 @Slf4j
 @Service
 public class StatsClient {
+    private static final MediaType BINARY = MediaType.parseMediaType(StatsBinaryCodec.MEDIA_TYPE);
+
     private final RestTemplate restTemplate;
     private final String serverUrl;
+    private final AsyncHitSender asyncHitSender;
+    private final WireFormat wireFormat;
 
     public StatsClient(
-            @Autowired RestTemplate restTemplate, @Value("${stat-server.url}") String serverUrl
+            @Autowired RestTemplate restTemplate, @Value("${stat-server.url}") String serverUrl,
+            @Value("${stat-server.async.enabled:false}") boolean async,
+            @Value("${stat-server.async.queue-capacity:10000}") int queueCapacity,
+            @Value("${stat-server.async.batch-size:100}") int batchSize,
+            @Value("${stat-server.async.flush-interval-ms:500}") long flushIntervalMs,
+            @Value("${stat-server.async.block-timeout-ms:100}") long blockTimeoutMs,
+            @Value("${stat-server.async.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+            @Value("${stat-server.wire-format:JSON}") WireFormat wireFormat,
+            ObjectProvider<MeterRegistry> meterRegistry
     ) {
         this.restTemplate = restTemplate;
         this.serverUrl = serverUrl;
+        this.wireFormat = wireFormat;
+        if (async) {
+            this.asyncHitSender = new AsyncHitSender(queueCapacity, batchSize, flushIntervalMs, blockTimeoutMs,
+                    overflowPolicy, this::postHits);
+            meterRegistry.ifAvailable(this::registerMetrics);
+        } else {
+            this.asyncHitSender = null;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (asyncHitSender != null) {
+            asyncHitSender.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (asyncHitSender != null) {
+            asyncHitSender.stop();
+        }
     }
 
     public List<StatsResponseDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
@@ -37,6 +91,9 @@ public class StatsClient {
             map.put("end", end.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
             map.put("uris", joiner.toString());
             map.put("unique", unique);
+            if (wireFormat == WireFormat.BINARY) {
+                return getStatsBinary(map);
+            }
             ResponseEntity<StatsResponseDto[]> response = restTemplate.getForEntity(serverUrl + "/stats?start={start}&end={end}&uris={uris}&unique={unique}", StatsResponseDto[].class, map);
 
             if (!response.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
@@ -53,7 +110,80 @@ public class StatsClient {
         }
     }
 
+    public List<StatsResponseDto> queryStats(StatsQueryDto query) {
+        try {
+            ResponseEntity<StatsResponseDto[]> response = restTemplate.postForEntity(serverUrl + "/stats/query", query, StatsResponseDto[].class);
+            if (!response.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
+                log.error("Код ответа: {}", response.getStatusCode());
+                throw new IllegalStateException("Код ошибки: " + response.getStatusCode());
+            }
+            if (response.getBody() == null) {
+                return new ArrayList<>();
+            }
+            return Arrays.asList(response.getBody());
+        } catch (RestClientException e) {
+            log.error("Во время выполнения запроса POST по URL-адресу: {} , возникла ошибка.", serverUrl + "/stats/query");
+            throw new IllegalArgumentException("Во время выполнения запроса POST по URL-адресу: '" + serverUrl + "/stats/query" + "', возникла ошибка.\n", e);
+        }
+    }
+
+    public Map<String, Long> getViews(Map<String, LocalDateTime> windows, Boolean unique) {
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            List<ViewWindowDto> windowDtos = new ArrayList<>(windows.size());
+            windows.forEach((uri, start) -> windowDtos.add(new ViewWindowDto(uri, start.format(formatter))));
+            ViewsRequestDto request = new ViewsRequestDto(windowDtos, LocalDateTime.now().format(formatter), unique);
+
+            ResponseEntity<Map<String, Long>> response = restTemplate.exchange(serverUrl + "/stats/views", HttpMethod.POST,
+                    new HttpEntity<>(request), new ParameterizedTypeReference<>() {
+                    });
+            if (!response.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
+                log.error("Код ответа: {}", response.getStatusCode());
+                throw new IllegalStateException("Код ошибки: " + response.getStatusCode());
+            }
+            if (response.getBody() == null) {
+                return new HashMap<>();
+            }
+            return response.getBody();
+        } catch (RestClientException e) {
+            log.error("Во время выполнения запроса POST по URL-адресу: {} , возникла ошибка.", serverUrl + "/stats/views");
+            throw new IllegalArgumentException("Во время выполнения запроса POST по URL-адресу: '" + serverUrl + "/stats/views" + "', возникла ошибка.\n", e);
+        }
+    }
+
+    public List<EntityScoreDto> getScores(String template, List<Long> ids, Integer limit) {
+        try {
+            HashMap<String, Object> map = new HashMap<>();
+            map.put("template", template);
+            map.put("limit", limit);
+            String url = serverUrl + "/stats/scores?template={template}&limit={limit}";
+            if (ids != null && !ids.isEmpty()) {
+                StringJoiner joiner = new StringJoiner(",");
+                ids.forEach(id -> joiner.add(String.valueOf(id)));
+                map.put("ids", joiner.toString());
+                url += "&id={ids}";
+            }
+            ResponseEntity<EntityScoreDto[]> response = restTemplate.getForEntity(url, EntityScoreDto[].class, map);
+
+            if (!response.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
+                log.error("Код ответа: {}", response.getStatusCode());
+                throw new IllegalStateException("Код ошибки: " + response.getStatusCode());
+            }
+            if (response.getBody() == null) {
+                return new ArrayList<>();
+            }
+            return Arrays.asList(response.getBody());
+        } catch (RestClientException e) {
+            log.error("Во время выполнения запроса GET по URL-адресу: {} , возникла ошибка.", serverUrl + "/stats/scores");
+            throw new IllegalArgumentException("Во время выполнения запроса GET по URL-адресу: '" + serverUrl + "/stats/scores" + "', возникла ошибка.\n", e);
+        }
+    }
+
     public void postHit(HitRequestDto hitRequestDto) {
+        if (wireFormat == WireFormat.BINARY) {
+            postHits(List.of(hitRequestDto));
+            return;
+        }
         try {
             ResponseEntity<Void> response = restTemplate.postForEntity(serverUrl + "/hit", hitRequestDto, Void.class);
             if (!response.getStatusCode().equals(HttpStatusCode.valueOf(201))) {
@@ -65,4 +195,77 @@ public class StatsClient {
             throw new IllegalArgumentException("Во время выполнения запроса POST по URL-адресу: '" + serverUrl + "/hit" + "', возникла ошибка.\n", e);
         }
     }
+
+    public void postHits(List<HitRequestDto> hitRequestDtos) {
+        try {
+            Object body = wireFormat == WireFormat.BINARY ? toBinaryEntity(hitRequestDtos) : hitRequestDtos;
+            ResponseEntity<Void> response = restTemplate.postForEntity(serverUrl + "/hits", body, Void.class);
+            if (!response.getStatusCode().equals(HttpStatusCode.valueOf(201))) {
+                log.error("Код ответа: {}", response.getStatusCode());
+                throw new IllegalStateException("Код ошибки: " + response.getStatusCode());
+            }
+        } catch (RestClientException e) {
+            log.error("Во время выполнения запроса POST по URL-адресу: {} , возникла ошибка.", serverUrl + "/hits");
+            throw new IllegalArgumentException("Во время выполнения запроса POST по URL-адресу: '" + serverUrl + "/hits" + "', возникла ошибка.\n", e);
+        }
+    }
+
+    public void reportHit(HitRequestDto hitRequestDto) {
+        if (asyncHitSender == null) {
+            postHit(hitRequestDto);
+        } else {
+            asyncHitSender.offer(hitRequestDto);
+        }
+    }
+
+    public long getQueuedHits() {
+        return asyncHitSender == null ? 0 : asyncHitSender.getQueued();
+    }
+
+    public long getSentHits() {
+        return asyncHitSender == null ? 0 : asyncHitSender.getSent();
+    }
+
+    public long getDroppedHits() {
+        return asyncHitSender == null ? 0 : asyncHitSender.getDropped();
+    }
+
+    private List<StatsResponseDto> getStatsBinary(Map<String, Object> map) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(BINARY));
+        ResponseEntity<byte[]> response = restTemplate.exchange(serverUrl + "/stats?start={start}&end={end}&uris={uris}&unique={unique}",
+                HttpMethod.GET, new HttpEntity<>(headers), byte[].class, map);
+
+        if (!response.getStatusCode().equals(HttpStatusCode.valueOf(200))) {
+            log.error("Код ответа: {}", response.getStatusCode());
+            throw new IllegalStateException("Код ошибки: " + response.getStatusCode());
+        }
+        if (response.getBody() == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return StatsBinaryCodec.readStats(new ByteArrayInputStream(response.getBody()));
+        } catch (IOException e) {
+            throw new RestClientException("Не удалось прочитать ответ сервера статистики", e);
+        }
+    }
+
+    private HttpEntity<byte[]> toBinaryEntity(List<HitRequestDto> hitRequestDtos) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            StatsBinaryCodec.writeHits(body, hitRequestDtos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(BINARY);
+        return new HttpEntity<>(body.toByteArray(), headers);
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("stats.client.hits.queued", asyncHitSender, AsyncHitSender::getQueued).register(registry);
+        FunctionCounter.builder("stats.client.hits.sent", asyncHitSender, AsyncHitSender::getSent).register(registry);
+        FunctionCounter.builder("stats.client.hits.dropped", asyncHitSender, AsyncHitSender::getDropped).register(registry);
+        Gauge.builder("stats.client.hits.backlog", asyncHitSender, AsyncHitSender::getBacklog).register(registry);
+    }
 }
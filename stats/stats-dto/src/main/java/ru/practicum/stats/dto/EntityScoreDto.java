@@ -0,0 +1,14 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityScoreDto {
+    private String template;
+    private Long entityId;
+    private Double score;
+}
@@ -12,4 +12,10 @@ public class HitRequestDto {
     private String uri;
     private String ip;
     private String timestamp;
+    private Integer durationMs;
+    private Integer status;
+
+    public HitRequestDto(String app, String uri, String ip, String timestamp) {
+        this(app, uri, ip, timestamp, null, null);
+    }
 }
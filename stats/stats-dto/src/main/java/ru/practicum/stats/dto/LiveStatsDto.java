@@ -0,0 +1,16 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveStatsDto {
+    private String app;
+    private String uri;
+    private Long hits1m;
+    private Long hits5m;
+    private Long hits15m;
+}
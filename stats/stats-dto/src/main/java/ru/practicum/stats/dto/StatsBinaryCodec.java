@@ -0,0 +1,161 @@
+package ru.practicum.stats.dto;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class StatsBinaryCodec {
+    public static final String MEDIA_TYPE = "application/x-ewm-stats";
+
+    private static final int MAGIC = 0x45575301;
+    private static final int HITS_MAGIC = 0x45575302;
+    private static final int MAX_STRING_BYTES = 65536;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private StatsBinaryCodec() {
+    }
+
+    public static void writeHits(OutputStream out, List<HitRequestDto> hits) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(HITS_MAGIC);
+        for (HitRequestDto hit : hits) {
+            writeString(data, hit.getApp());
+            writeString(data, hit.getUri());
+            writeString(data, hit.getIp());
+            data.writeLong(toEpochMillis(hit.getTimestamp()));
+            writeOptionalInt(data, hit.getDurationMs());
+            writeOptionalInt(data, hit.getStatus());
+        }
+        data.flush();
+    }
+
+    public static void readHits(InputStream in, HitReader reader) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int magic = data.readInt();
+        if (magic != MAGIC && magic != HITS_MAGIC) {
+            throw new IOException("Неизвестный формат данных статистики");
+        }
+        while (hasMore(data)) {
+            String app = readString(data);
+            String uri = readString(data);
+            String ip = readString(data);
+            long epochMillis = data.readLong();
+            if (magic == HITS_MAGIC) {
+                reader.read(app, uri, ip, epochMillis, readOptionalInt(data), readOptionalInt(data));
+            } else {
+                reader.read(app, uri, ip, epochMillis, null, null);
+            }
+        }
+    }
+
+    public static DataOutputStream startStats(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        return data;
+    }
+
+    public static void writeStat(DataOutputStream out, StatsResponseDto stat) throws IOException {
+        writeString(out, stat.getApp());
+        writeString(out, stat.getUri());
+        writeVarInt(out, stat.getHits());
+    }
+
+    public static List<StatsResponseDto> readStats(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        readMagic(data);
+        List<StatsResponseDto> stats = new ArrayList<>();
+        while (hasMore(data)) {
+            stats.add(new StatsResponseDto(readString(data), readString(data), readVarInt(data)));
+        }
+        return stats;
+    }
+
+    public static long toEpochMillis(String timestamp) {
+        return LocalDateTime.parse(timestamp, TIMESTAMP_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private static void readMagic(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Неизвестный формат данных статистики");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static boolean hasMore(DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) {
+            return false;
+        }
+        in.reset();
+        return true;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Некорректная длина строки в данных статистики: " + length);
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeOptionalInt(DataOutputStream out, Integer value) throws IOException {
+        writeVarInt(out, value == null || value < 0 ? 0 : value + 1);
+    }
+
+    private static Integer readOptionalInt(DataInputStream in) throws IOException {
+        int value = readVarInt(in);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Некорректное число в данных статистики");
+    }
+
+    public interface HitReader {
+        void read(String app, String uri, String ip, long epochMillis, Integer durationMs, Integer status);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQueryDto {
+    private String start;
+    private String end;
+    private List<String> uris;
+    private List<String> prefixes;
+    private String template;
+    private List<Long> ids;
+    private Boolean unique;
+    private Boolean exact;
+    private Integer limit;
+}
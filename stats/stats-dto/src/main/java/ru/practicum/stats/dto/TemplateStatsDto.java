@@ -0,0 +1,15 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TemplateStatsDto {
+    private String app;
+    private String template;
+    private Long entityId;
+    private Long hits;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingItemDto {
+    private String app;
+    private String uri;
+    private Long hits;
+    private Long minHits;
+    private Double share;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewsRequestDto {
+    private List<ViewWindowDto> windows;
+    private String end;
+    private Boolean unique;
+}
@@ -0,0 +1,111 @@
+package ru.practicum.stats.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsBinaryCodecTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Test
+    void hitsRoundTripWithTimingFields() throws IOException {
+        HitRequestDto timed = new HitRequestDto("ewm-main-service", "/events/1", "192.168.0.1", "2024-03-10 12:30:45");
+        timed.setDurationMs(250);
+        timed.setStatus(200);
+        HitRequestDto untimed = new HitRequestDto("ewm-main-service", "/events", "10.0.0.1", "2024-03-10 12:31:00");
+        HitRequestDto zero = new HitRequestDto("ewm-main-service", "/events/2", "10.0.0.2", "2024-03-10 12:32:00");
+        zero.setDurationMs(0);
+        zero.setStatus(599);
+
+        List<HitRequestDto> read = readHits(write(List.of(timed, untimed, zero)));
+
+        assertThat(read).containsExactly(timed, untimed, zero);
+    }
+
+    @Test
+    void legacyHitsWithoutTimingFieldsAreStillRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0x45575301);
+        writeShortString(data, "ewm-main-service");
+        writeShortString(data, "/events/1");
+        writeShortString(data, "192.168.0.1");
+        data.writeLong(StatsBinaryCodec.toEpochMillis("2024-03-10 12:30:45"));
+
+        List<HitRequestDto> read = readHits(bytes.toByteArray());
+
+        assertThat(read).containsExactly(new HitRequestDto("ewm-main-service", "/events/1", "192.168.0.1", "2024-03-10 12:30:45"));
+    }
+
+    @Test
+    void unknownMagicIsRejected() {
+        byte[] bytes = {0x00, 0x01, 0x02, 0x03};
+
+        assertThatThrownBy(() -> readHits(bytes)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> StatsBinaryCodec.readStats(new ByteArrayInputStream(bytes))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void truncatedHitIsRejected() throws IOException {
+        HitRequestDto hit = new HitRequestDto("ewm-main-service", "/events/1", "192.168.0.1", "2024-03-10 12:30:45");
+        byte[] bytes = write(List.of(hit));
+        byte[] truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        assertThatThrownBy(() -> readHits(truncated)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void statsRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = StatsBinaryCodec.startStats(bytes);
+        StatsBinaryCodec.writeStat(data, new StatsResponseDto("ewm-main-service", "/events/1", 300));
+        StatsBinaryCodec.writeStat(data, new StatsResponseDto("ewm-main-service", "/events/2", 1));
+        data.flush();
+
+        List<StatsResponseDto> stats = StatsBinaryCodec.readStats(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertThat(stats).containsExactly(new StatsResponseDto("ewm-main-service", "/events/1", 300),
+                new StatsResponseDto("ewm-main-service", "/events/2", 1));
+    }
+
+    @Test
+    void hitStreamIsNotReadAsStats() throws IOException {
+        byte[] bytes = write(List.of());
+
+        assertThatThrownBy(() -> StatsBinaryCodec.readStats(new ByteArrayInputStream(bytes))).isInstanceOf(IOException.class);
+    }
+
+    private static byte[] write(List<HitRequestDto> hits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StatsBinaryCodec.writeHits(bytes, hits);
+        return bytes.toByteArray();
+    }
+
+    private static List<HitRequestDto> readHits(byte[] bytes) throws IOException {
+        List<HitRequestDto> hits = new ArrayList<>();
+        StatsBinaryCodec.readHits(new ByteArrayInputStream(bytes), (app, uri, ip, epochMillis, durationMs, status) -> {
+            HitRequestDto hit = new HitRequestDto(app, uri, ip, StatsBinaryCodec.toLocalDateTime(epochMillis).format(FORMATTER));
+            hit.setDurationMs(durationMs);
+            hit.setStatus(status);
+            hits.add(hit);
+        });
+        return hits;
+    }
+
+    private static void writeShortString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(bytes.length + 1);
+        out.write(bytes);
+    }
+}
@@ -2,12 +2,24 @@ package ru.practicum;
 
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.practicum.service.HitImportRunner;
 
+import java.util.Arrays;
+
+@EnableScheduling
 @SpringBootApplication
 public class StatsServerApp {
 
     public static void main(String[] args) {
+        if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + HitImportRunner.IMPORT_OPTION + "="))) {
+            System.exit(SpringApplication.exit(new SpringApplicationBuilder(StatsServerApp.class)
+                    .web(WebApplicationType.NONE)
+                    .run(args)));
+        }
         SpringApplication.run(StatsServerApp.class, args);
     }
 
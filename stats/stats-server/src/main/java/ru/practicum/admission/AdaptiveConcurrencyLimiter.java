@@ -0,0 +1,83 @@
+package ru.practicum.admission;
+
+public class AdaptiveConcurrencyLimiter {
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double queueFactor;
+    private final long queueTimeoutMs;
+    private double limit;
+    private long lastDecreaseNanos;
+    private int inFlight;
+    private int waiting;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long targetLatencyMs, double queueFactor, long queueTimeoutMs) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.targetLatencyNanos = targetLatencyMs * 1_000_000L;
+        this.queueFactor = queueFactor;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.limit = this.maxLimit;
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    public synchronized Admission acquire() throws InterruptedException {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return Admission.ACCEPTED;
+        }
+        if (waiting >= Math.ceil(limit * queueFactor)) {
+            return Admission.QUEUE_FULL;
+        }
+
+        waiting++;
+        try {
+            long deadline = System.currentTimeMillis() + queueTimeoutMs;
+            while (inFlight >= (int) limit) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return Admission.TIMED_OUT;
+                }
+                wait(remaining);
+            }
+        } finally {
+            waiting--;
+        }
+        inFlight++;
+        return Admission.ACCEPTED;
+    }
+
+    public synchronized void release(long latencyNanos) {
+        inFlight--;
+        long now = System.nanoTime();
+        if (latencyNanos > targetLatencyNanos) {
+            if (now - latencyNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                lastDecreaseNanos = now;
+            }
+        } else if (limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting;
+    }
+
+    public enum Admission {
+        ACCEPTED,
+        QUEUE_FULL,
+        TIMED_OUT
+    }
+}
@@ -0,0 +1,181 @@
+package ru.practicum.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.error.ErrorResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private static final String INGEST = "ingest";
+    private static final String QUERY = "query";
+    private static final String IMPORT = "import";
+    private static final Set<String> QUERY_POSTS = Set.of("/stats/query", "/stats/views");
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final AdaptiveConcurrencyLimiter ingestLimiter;
+    private final AdaptiveConcurrencyLimiter queryLimiter;
+    private final AdaptiveConcurrencyLimiter importLimiter;
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionControlFilter(ObjectMapper objectMapper,
+                                  @Value("${stats.admission.enabled:true}") boolean enabled,
+                                  @Value("${stats.admission.retry-after-seconds:1}") long retryAfterSeconds,
+                                  @Value("${stats.admission.ingest.min-concurrency:2}") int ingestMin,
+                                  @Value("${stats.admission.ingest.max-concurrency:6}") int ingestMax,
+                                  @Value("${stats.admission.ingest.target-latency-ms:200}") long ingestTargetLatencyMs,
+                                  @Value("${stats.admission.ingest.queue-factor:2.0}") double ingestQueueFactor,
+                                  @Value("${stats.admission.ingest.queue-timeout-ms:100}") long ingestQueueTimeoutMs,
+                                  @Value("${stats.admission.query.min-concurrency:4}") int queryMin,
+                                  @Value("${stats.admission.query.max-concurrency:16}") int queryMax,
+                                  @Value("${stats.admission.query.target-latency-ms:500}") long queryTargetLatencyMs,
+                                  @Value("${stats.admission.query.queue-factor:2.0}") double queryQueueFactor,
+                                  @Value("${stats.admission.query.queue-timeout-ms:1000}") long queryQueueTimeoutMs,
+                                  @Value("${stats.admission.import.max-concurrency:1}") int importMax,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.ingestLimiter = new AdaptiveConcurrencyLimiter(ingestMin, ingestMax, ingestTargetLatencyMs,
+                ingestQueueFactor, ingestQueueTimeoutMs);
+        this.queryLimiter = new AdaptiveConcurrencyLimiter(queryMin, queryMax, queryTargetLatencyMs,
+                queryQueueFactor, queryQueueTimeoutMs);
+        this.importLimiter = new AdaptiveConcurrencyLimiter(importMax, importMax, 0, 0, 0);
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        if (this.meterRegistry != null) {
+            registerMetrics(INGEST, ingestLimiter);
+            registerMetrics(QUERY, queryLimiter);
+            registerMetrics(IMPORT, importLimiter);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || route(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String route = route(request);
+        AdaptiveConcurrencyLimiter limiter = switch (route) {
+            case INGEST -> ingestLimiter;
+            case IMPORT -> importLimiter;
+            default -> queryLimiter;
+        };
+
+        AdaptiveConcurrencyLimiter.Admission admission;
+        try {
+            admission = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admission = AdaptiveConcurrencyLimiter.Admission.TIMED_OUT;
+        }
+        if (admission != AdaptiveConcurrencyLimiter.Admission.ACCEPTED) {
+            reject(response, route, admission);
+            return;
+        }
+
+        long started = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - started);
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private String route(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("POST".equals(request.getMethod()) && ("/hit".equals(path) || "/hits".equals(path))) {
+            return INGEST;
+        }
+        if ("POST".equals(request.getMethod()) && "/admin/import".equals(path)) {
+            return IMPORT;
+        }
+        if (path.startsWith("/stats") && ("GET".equals(request.getMethod()) || QUERY_POSTS.contains(path))) {
+            return QUERY;
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, String route, AdaptiveConcurrencyLimiter.Admission admission) throws IOException {
+        HttpStatus status = admission == AdaptiveConcurrencyLimiter.Admission.QUEUE_FULL
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        log.debug("Запрос {} отклонен: {}", route, admission);
+        if (meterRegistry != null) {
+            Counter.builder("stats.admission.rejected")
+                    .tag("route", route)
+                    .tag("reason", admission.name().toLowerCase())
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("Сервер перегружен", "Повторите запрос через " + retryAfterSeconds + " с."));
+    }
+
+    private void registerMetrics(String route, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("stats.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).tag("route", route).register(meterRegistry);
+        Gauge.builder("stats.admission.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).tag("route", route).register(meterRegistry);
+        Gauge.builder("stats.admission.waiting", limiter, AdaptiveConcurrencyLimiter::getWaiting).tag("route", route).register(meterRegistry);
+    }
+
+    private record ReleaseListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
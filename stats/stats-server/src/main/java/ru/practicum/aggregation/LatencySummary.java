@@ -0,0 +1,40 @@
+package ru.practicum.aggregation;
+
+public class LatencySummary {
+    private final TDigest digest;
+    private long errors;
+
+    public LatencySummary(double compression) {
+        this(new TDigest(compression), 0);
+    }
+
+    public LatencySummary(TDigest digest, long errors) {
+        this.digest = digest;
+        this.errors = errors;
+    }
+
+    public void add(int durationMs, Integer status) {
+        digest.add(durationMs);
+        if (status != null && status >= 500) {
+            errors++;
+        }
+    }
+
+    public LatencySummary merge(LatencySummary other) {
+        digest.merge(other.digest);
+        errors += other.errors;
+        return this;
+    }
+
+    public TDigest getDigest() {
+        return digest;
+    }
+
+    public long getRequests() {
+        return digest.getCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.aggregation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class SecondRing {
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final AtomicLongArray slots;
+    private final AtomicLong lastSecond = new AtomicLong();
+
+    public SecondRing(int seconds) {
+        this.slots = new AtomicLongArray(seconds);
+    }
+
+    // Returns false once the ring is retired; the caller must record the hits in a fresh ring.
+    public boolean add(long epochSecond, long hits) {
+        long last;
+        do {
+            last = lastSecond.get();
+            if (last == RETIRED) {
+                return false;
+            }
+        } while (last < epochSecond && !lastSecond.compareAndSet(last, epochSecond));
+
+        int index = (int) (epochSecond % slots.length());
+        long tag = epochSecond << 32;
+        long current;
+        long next;
+        do {
+            current = slots.get(index);
+            if ((current & ~COUNT_MASK) == tag) {
+                next = current + hits;
+            } else if ((current >>> 32) < epochSecond) {
+                next = tag | hits;
+            } else {
+                return true;
+            }
+        } while (!slots.compareAndSet(index, current, next));
+        return true;
+    }
+
+    // Retires the ring only if nothing was added at or after cutoff, atomically with respect to add().
+    public boolean retire(long cutoff) {
+        long last;
+        do {
+            last = lastSecond.get();
+            if (last == RETIRED) {
+                return true;
+            }
+            if (last >= cutoff) {
+                return false;
+            }
+        } while (!lastSecond.compareAndSet(last, RETIRED));
+        return true;
+    }
+
+    public long[] sums(long nowEpochSecond, int... windows) {
+        long[] sums = new long[windows.length];
+        for (int i = 0; i < slots.length(); i++) {
+            long slot = slots.get(i);
+            long age = nowEpochSecond - (slot >>> 32);
+            if (age < 0) {
+                continue;
+            }
+            for (int w = 0; w < windows.length; w++) {
+                if (age < windows[w]) {
+                    sums[w] += slot & COUNT_MASK;
+                }
+            }
+        }
+        return sums;
+    }
+}
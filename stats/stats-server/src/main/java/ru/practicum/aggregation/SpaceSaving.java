@@ -0,0 +1,118 @@
+package ru.practicum.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Integer> positions;
+    private final List<K> keys;
+    private final long[] counts;
+    private final long[] errors;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.positions = new HashMap<>(this.capacity * 2);
+        this.keys = new ArrayList<>(this.capacity);
+        this.counts = new long[this.capacity];
+        this.errors = new long[this.capacity];
+    }
+
+    public void offer(K key, long count, long upperBound) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            counts[position] += count;
+            siftDown(position);
+            return;
+        }
+        if (keys.size() < capacity) {
+            set(keys.size(), key, count, 0);
+            siftUp(keys.size() - 1);
+            return;
+        }
+
+        long estimate = Math.min(counts[0] + count, upperBound);
+        if (estimate <= counts[0]) {
+            return;
+        }
+        positions.remove(keys.get(0));
+        set(0, key, estimate, estimate - count);
+        siftDown(0);
+    }
+
+    public Item<K> get(K key) {
+        Integer position = positions.get(key);
+        return position == null ? null : item(position);
+    }
+
+    public List<Item<K>> items() {
+        List<Item<K>> items = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            items.add(item(i));
+        }
+        return items;
+    }
+
+    public void clear() {
+        positions.clear();
+        keys.clear();
+    }
+
+    private Item<K> item(int position) {
+        return new Item<>(keys.get(position), counts[position], errors[position]);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < keys.size() && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < keys.size() && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        K key = keys.get(a);
+        long count = counts[a];
+        long error = errors[a];
+        set(a, keys.get(b), counts[b], errors[b]);
+        set(b, key, count, error);
+    }
+
+    private void set(int position, K key, long count, long error) {
+        if (position == keys.size()) {
+            keys.add(key);
+        } else {
+            keys.set(position, key);
+        }
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(key, position);
+    }
+
+    public record Item<K>(K key, long count, long error) {
+    }
+}
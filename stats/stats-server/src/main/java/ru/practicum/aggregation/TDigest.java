@@ -0,0 +1,208 @@
+package ru.practicum.aggregation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TDigest {
+    private static final byte FORMAT = 1;
+
+    private final double compression;
+    private double[] means;
+    private long[] weights;
+    private int size;
+    private final double[] bufferMeans;
+    private final long[] bufferWeights;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Недопустимое сжатие t-digest: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 1;
+        this.means = new double[capacity];
+        this.weights = new long[capacity];
+        this.bufferMeans = new double[(int) (compression * 5)];
+        this.bufferWeights = new long[bufferMeans.length];
+    }
+
+    public static TDigest fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Неизвестный формат t-digest: " + format);
+        }
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            digest.add(buffer.getDouble(), buffer.getLong());
+        }
+        if (digest.count > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long weight) {
+        if (weight <= 0 || Double.isNaN(value)) {
+            return;
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        count += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public TDigest merge(TDigest other) {
+        if (other.count == 0) {
+            return this;
+        }
+        double otherMin = other.min;
+        double otherMax = other.max;
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.buffered; i++) {
+            add(other.bufferMeans[i], other.bufferWeights[i]);
+        }
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Квантиль должна быть в диапазоне [0, 1]: " + q);
+        }
+        compress();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size == 1) {
+            return means[0];
+        }
+
+        double index = q * count;
+        if (index < weights[0] / 2.0) {
+            return min + (means[0] - min) * index / (weights[0] / 2.0);
+        }
+
+        double center = weights[0] / 2.0;
+        for (int i = 0; i < size - 1; i++) {
+            double nextCenter = center + (weights[i] + weights[i + 1]) / 2.0;
+            if (index < nextCenter) {
+                double fraction = (index - center) / (nextCenter - center);
+                return means[i] + (means[i + 1] - means[i]) * fraction;
+            }
+            center = nextCenter;
+        }
+
+        double lastHalf = weights[size - 1] / 2.0;
+        double fraction = Math.min(1, (index - center) / lastHalf);
+        return means[size - 1] + (max - means[size - 1]) * fraction;
+    }
+
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Double.BYTES * 3 + Integer.BYTES + size * (Double.BYTES + Long.BYTES));
+        buffer.put(FORMAT)
+                .putDouble(compression)
+                .putDouble(min)
+                .putDouble(max)
+                .putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putDouble(means[i]).putLong(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+
+        int total = size + buffered;
+        double[] allMeans = Arrays.copyOf(means, total);
+        long[] allWeights = Arrays.copyOf(weights, total);
+        System.arraycopy(bufferMeans, 0, allMeans, size, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, size, buffered);
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double[] mergedMeans = new double[means.length];
+        long[] mergedWeights = new long[weights.length];
+        int merged = 0;
+        double mean = allMeans[order[0]];
+        long weight = allWeights[order[0]];
+        long weightSoFar = 0;
+        double limit = count * maxQuantile(0);
+        for (int i = 1; i < total; i++) {
+            int next = order[i];
+            if (weightSoFar + weight + allWeights[next] <= limit) {
+                weight += allWeights[next];
+                mean += (allMeans[next] - mean) * allWeights[next] / weight;
+                continue;
+            }
+            if (merged == mergedMeans.length) {
+                mergedMeans = Arrays.copyOf(mergedMeans, merged * 2);
+                mergedWeights = Arrays.copyOf(mergedWeights, merged * 2);
+            }
+            mergedMeans[merged] = mean;
+            mergedWeights[merged] = weight;
+            merged++;
+            weightSoFar += weight;
+            limit = count * maxQuantile((double) weightSoFar / count);
+            mean = allMeans[next];
+            weight = allWeights[next];
+        }
+        if (merged == mergedMeans.length) {
+            mergedMeans = Arrays.copyOf(mergedMeans, merged + 1);
+            mergedWeights = Arrays.copyOf(mergedWeights, merged + 1);
+        }
+        mergedMeans[merged] = mean;
+        mergedWeights[merged] = weight;
+
+        means = mergedMeans;
+        weights = mergedWeights;
+        size = merged + 1;
+        buffered = 0;
+    }
+
+    private double maxQuantile(double q) {
+        double k = compression / Math.PI * Math.asin(2 * q - 1) + 1;
+        if (k >= compression / 2) {
+            return 1;
+        }
+        return (Math.sin(k * Math.PI / compression) + 1) / 2;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.aggregation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class TopN<T> {
+    private final int limit;
+    private final Comparator<T> order;
+    private final PriorityQueue<T> heap;
+
+    public TopN(int limit, Comparator<T> order) {
+        this.limit = limit;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), order);
+    }
+
+    public void offer(T item) {
+        if (heap.size() < limit) {
+            heap.add(item);
+        } else if (limit > 0 && order.compare(item, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    public List<T> toList() {
+        List<T> items = new ArrayList<>(heap);
+        items.sort(order.reversed());
+        return items;
+    }
+}
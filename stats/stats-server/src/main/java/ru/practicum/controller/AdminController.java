@@ -0,0 +1,32 @@
+package ru.practicum.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.ImportFormat;
+import ru.practicum.model.ImportResult;
+import ru.practicum.service.HitImportService;
+
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final HitImportService hitImportService;
+
+    @PostMapping("/import")
+    public ImportResult importHits(@RequestParam(defaultValue = "csv", required = false, name = "format") String format,
+                                   InputStream body) {
+        ImportFormat importFormat = ImportFormat.from(format).orElseThrow(() -> {
+            log.warn("Неизвестный формат импорта: {}", format);
+            return new ValidationException("Неизвестный формат импорта: " + format);
+        });
+        return hitImportService.importHits(body, importFormat);
+    }
+}
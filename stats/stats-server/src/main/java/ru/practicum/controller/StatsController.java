@@ -1,21 +1,43 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.mapper.StatisticMapper;
+import ru.practicum.model.Statistic;
 import ru.practicum.service.StatsService;
+import ru.practicum.stats.dto.EntityScoreDto;
 import ru.practicum.stats.dto.HitRequestDto;
+import ru.practicum.stats.dto.LatencyStatsDto;
+import ru.practicum.stats.dto.LiveStatsDto;
+import ru.practicum.stats.dto.StatsBinaryCodec;
+import ru.practicum.stats.dto.StatsQueryDto;
 import ru.practicum.stats.dto.StatsResponseDto;
+import ru.practicum.stats.dto.TemplateStatsDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
+import ru.practicum.stats.dto.TrendingDto;
+import ru.practicum.stats.dto.ViewsRequestDto;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -23,13 +45,140 @@ public class StatsController {
         statsService.createEndpointHistory(hitRequestDto);
     }
 
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAll(@RequestBody List<HitRequestDto> hitRequestDtos) {
+        statsService.createEndpointHistories(hitRequestDtos);
+    }
+
+    @PostMapping(value = "/hits", consumes = StatsBinaryCodec.MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAllBinary(InputStream body) {
+        statsService.createEndpointHistories(body);
+    }
+
     @GetMapping("/stats")
     public List<StatsResponseDto> getStats(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                            @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                            @RequestParam(name = "uris", required = false) List<String> uris,
-                                           @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique) {
+                                           @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique,
+                                           @RequestParam(defaultValue = "false", required = false, name = "exact") Boolean exact,
+                                           @RequestParam(name = "limit", required = false) Integer limit) {
+
+        return StatisticMapper.toDto(statsService.getStatistic(start, end, uris, unique, exact, limit));
+    }
+
+    @PostMapping("/stats/query")
+    public List<StatsResponseDto> queryStats(@RequestBody StatsQueryDto query) {
+        return StatisticMapper.toDto(statsService.queryStatistic(query));
+    }
 
-        return StatisticMapper.toDto(statsService.getStatistic(start, end, uris, unique));
+    @PostMapping("/stats/views")
+    public Map<String, Long> getViews(@RequestBody ViewsRequestDto request) {
+        return statsService.getViews(request);
     }
 
+    @GetMapping("/stats/top")
+    public List<StatsResponseDto> getTopStats(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                              @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                              @RequestParam(name = "uris", required = false) List<String> uris,
+                                              @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique,
+                                              @RequestParam(defaultValue = "10", required = false, name = "limit") Integer limit) {
+
+        return StatisticMapper.toDto(statsService.getStatistic(start, end, uris, unique, false, limit));
+    }
+
+    @GetMapping("/stats/live")
+    public List<LiveStatsDto> getLiveStats(@RequestParam(name = "uris", required = false) List<String> uris,
+                                           @RequestParam(name = "limit", required = false) Integer limit) {
+
+        return StatisticMapper.toLiveDto(statsService.getLiveStatistic(uris, limit));
+    }
+
+    @GetMapping("/stats/trending")
+    public TrendingDto getTrending(@RequestParam(defaultValue = "10", required = false, name = "limit") Integer limit) {
+        return StatisticMapper.toDto(statsService.getTrending(limit));
+    }
+
+    @GetMapping("/stats/latency")
+    public List<LatencyStatsDto> getLatency(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                            @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                            @RequestParam(name = "uri", required = false) List<String> routes,
+                                            @RequestParam(defaultValue = "10", required = false, name = "limit") Integer limit) {
+
+        return StatisticMapper.toLatencyDto(statsService.getLatency(start, end, routes, limit));
+    }
+
+    @GetMapping("/stats/scores")
+    public List<EntityScoreDto> getScores(@RequestParam(name = "template", required = false) String template,
+                                          @RequestParam(name = "id", required = false) List<Long> ids,
+                                          @RequestParam(defaultValue = "10", required = false, name = "limit") Integer limit) {
+
+        return StatisticMapper.toScoreDto(statsService.getScores(template, ids, limit));
+    }
+
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeriesPointDto> getTimeSeries(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                  @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                  @RequestParam(name = "uri", required = false) List<String> uris,
+                                                  @RequestParam(defaultValue = "1h", required = false, name = "step") String step,
+                                                  @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique) {
+
+        return StatisticMapper.toTimeSeriesDto(statsService.getTimeSeries(start, end, uris, step, unique));
+    }
+
+    @GetMapping("/stats/templates")
+    public List<TemplateStatsDto> getTemplateStats(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                   @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                   @RequestParam(name = "template", required = false) String template,
+                                                   @RequestParam(name = "id", required = false) List<Long> ids,
+                                                   @RequestParam(defaultValue = "entity", required = false, name = "groupBy") String groupBy,
+                                                   @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique,
+                                                   @RequestParam(name = "limit", required = false) Integer limit) {
+
+        return StatisticMapper.toTemplateDto(statsService.getTemplateStatistic(start, end, template, ids, groupBy, unique, limit));
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                             @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                             @RequestParam(name = "uris", required = false) List<String> uris,
+                                                             @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique,
+                                                             @RequestParam(defaultValue = "false", required = false, name = "exact") Boolean exact,
+                                                             @RequestParam(name = "limit", required = false) Integer limit) {
+
+        statsService.validateGetFields(start, end);
+        statsService.validateLimit(limit);
+        StreamingResponseBody body = out -> statsService.streamStatistic(start, end, uris, unique, exact, limit,
+                statistic -> writeLine(out, statistic));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping(value = "/stats", produces = StatsBinaryCodec.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> getStatsBinary(@RequestParam("start") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                                @RequestParam("end") @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                                @RequestParam(name = "uris", required = false) List<String> uris,
+                                                                @RequestParam(defaultValue = "false", required = false, name = "unique") Boolean unique,
+                                                                @RequestParam(defaultValue = "false", required = false, name = "exact") Boolean exact,
+                                                                @RequestParam(name = "limit", required = false) Integer limit) {
+
+        List<Statistic> statistics = statsService.getStatistic(start, end, uris, unique, exact, limit);
+        StreamingResponseBody body = out -> {
+            DataOutputStream data = StatsBinaryCodec.startStats(new BufferedOutputStream(out));
+            for (Statistic statistic : statistics) {
+                StatsBinaryCodec.writeStat(data, StatisticMapper.toDto(statistic));
+            }
+            data.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(StatsBinaryCodec.MEDIA_TYPE)).body(body);
+    }
+
+    private void writeLine(OutputStream out, Statistic statistic) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(StatisticMapper.toDto(statistic)));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package ru.practicum.mapper;
+
+import ru.practicum.aggregation.HyperLogLog;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+public class IpAddressMapper {
+    private static final Pattern IPV4 = Pattern.compile("((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    public static boolean isValid(String ip) {
+        return toBytes(ip) != null;
+    }
+
+    public static byte[] toBytes(String ip) {
+        if (ip == null || !IPV4.matcher(ip).matches() && !IPV6.matcher(ip).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    public static long hash(String ip) {
+        byte[] bytes = toBytes(ip);
+        return bytes == null ? HyperLogLog.hash(ip) : HyperLogLog.hash(bytes);
+    }
+}
@@ -1,9 +1,24 @@
 package ru.practicum.mapper;
 
 import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EntityScore;
+import ru.practicum.model.LatencyStatistic;
+import ru.practicum.model.LiveStatistic;
 import ru.practicum.model.Statistic;
+import ru.practicum.model.TemplateStatistic;
+import ru.practicum.model.TimeSeriesPoint;
+import ru.practicum.model.Trending;
+import ru.practicum.model.TrendingItem;
+import ru.practicum.stats.dto.EntityScoreDto;
 import ru.practicum.stats.dto.HitRequestDto;
+import ru.practicum.stats.dto.LatencyStatsDto;
+import ru.practicum.stats.dto.LiveStatsDto;
+import ru.practicum.stats.dto.StatsBinaryCodec;
 import ru.practicum.stats.dto.StatsResponseDto;
+import ru.practicum.stats.dto.TemplateStatsDto;
+import ru.practicum.stats.dto.TimeSeriesPointDto;
+import ru.practicum.stats.dto.TrendingDto;
+import ru.practicum.stats.dto.TrendingItemDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -11,12 +26,27 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class StatisticMapper {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     public static EndpointHistory toEndpointHistory(HitRequestDto hitRequestDto) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return new EndpointHistory(
+        EndpointHistory endpointHistory = new EndpointHistory(
                 hitRequestDto.getUri(),
                 hitRequestDto.getIp(),
-                LocalDateTime.parse(hitRequestDto.getTimestamp(), formatter));
+                LocalDateTime.parse(hitRequestDto.getTimestamp(), FORMATTER));
+        endpointHistory.setDurationMs(hitRequestDto.getDurationMs());
+        endpointHistory.setStatus(hitRequestDto.getStatus());
+        return endpointHistory;
+    }
+
+    public static LocalDateTime toLocalDateTime(String dateTime) {
+        return LocalDateTime.parse(dateTime, FORMATTER);
+    }
+
+    public static EndpointHistory toEndpointHistory(String uri, String ip, long epochMillis, Integer durationMs, Integer status) {
+        EndpointHistory endpointHistory = new EndpointHistory(uri, ip, StatsBinaryCodec.toLocalDateTime(epochMillis));
+        endpointHistory.setDurationMs(durationMs);
+        endpointHistory.setStatus(status);
+        return endpointHistory;
     }
 
     public static StatsResponseDto toDto(Statistic statistic) {
@@ -29,6 +59,68 @@ public class StatisticMapper {
         return statsResponseDto;
     }
 
+    public static LiveStatsDto toDto(LiveStatistic statistic) {
+        return new LiveStatsDto(statistic.getApp().getName(), statistic.getUri(), statistic.getLastMinute(),
+                statistic.getLastFiveMinutes(), statistic.getLastFifteenMinutes());
+    }
+
+    public static List<LiveStatsDto> toLiveDto(List<LiveStatistic> statistics) {
+        List<LiveStatsDto> statsDtos = new ArrayList<>(statistics.size());
+        for (LiveStatistic statistic : statistics) {
+            statsDtos.add(toDto(statistic));
+        }
+        return statsDtos;
+    }
+
+    public static List<LatencyStatsDto> toLatencyDto(List<LatencyStatistic> statistics) {
+        List<LatencyStatsDto> statsDtos = new ArrayList<>(statistics.size());
+        for (LatencyStatistic statistic : statistics) {
+            statsDtos.add(new LatencyStatsDto(statistic.getRoute(), statistic.getRequests(), statistic.getErrors(),
+                    statistic.getP50(), statistic.getP95(), statistic.getP99(), statistic.getMax()));
+        }
+        return statsDtos;
+    }
+
+    public static List<EntityScoreDto> toScoreDto(List<EntityScore> scores) {
+        List<EntityScoreDto> scoreDtos = new ArrayList<>(scores.size());
+        for (EntityScore score : scores) {
+            scoreDtos.add(new EntityScoreDto(score.getTemplate(), score.getEntityId(), score.getScore()));
+        }
+        return scoreDtos;
+    }
+
+    public static TrendingDto toDto(Trending trending) {
+        List<TrendingItemDto> items = new ArrayList<>(trending.getItems().size());
+        for (TrendingItem item : trending.getItems()) {
+            items.add(new TrendingItemDto(item.getApp().getName(), item.getUri(), item.getHits(), item.getMinHits(), item.getShare()));
+        }
+        return new TrendingDto(trending.getTotal(), trending.getErrorBound(), trending.getConfidence(), items);
+    }
+
+    public static TemplateStatsDto toDto(TemplateStatistic statistic) {
+        return new TemplateStatsDto(statistic.getApp().getName(), statistic.getTemplate(), statistic.getEntityId(), statistic.getHits());
+    }
+
+    public static List<TemplateStatsDto> toTemplateDto(List<TemplateStatistic> statistics) {
+        List<TemplateStatsDto> statsDtos = new ArrayList<>(statistics.size());
+        for (TemplateStatistic statistic : statistics) {
+            statsDtos.add(toDto(statistic));
+        }
+        return statsDtos;
+    }
+
+    public static TimeSeriesPointDto toDto(TimeSeriesPoint point) {
+        return new TimeSeriesPointDto(point.getBucket().format(FORMATTER), point.getHits());
+    }
+
+    public static List<TimeSeriesPointDto> toTimeSeriesDto(List<TimeSeriesPoint> points) {
+        List<TimeSeriesPointDto> pointDtos = new ArrayList<>(points.size());
+        for (TimeSeriesPoint point : points) {
+            pointDtos.add(toDto(point));
+        }
+        return pointDtos;
+    }
+
     public static List<StatsResponseDto> toDto(List<Statistic> statisticList) {
         List<StatsResponseDto> statsResponseDtoList = new ArrayList<>();
         for (Statistic statistic : statisticList) {
@@ -2,6 +2,8 @@ package ru.practicum.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.Formula;
 
 import java.time.LocalDateTime;
 
@@ -15,12 +17,14 @@ import java.time.LocalDateTime;
 public class EndpointHistory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    private Long id;
 
     @NonNull
+    @Formula("(select u.uri from uris u where u.id = uri_id)")
     private String uri;
 
     @NonNull
+    @ColumnTransformer(read = "host(ip)", write = "cast(? as inet)")
     private String ip;
 
     @NonNull
@@ -30,4 +34,16 @@ public class EndpointHistory {
     @JoinColumn(name = "app_id")
     private App app;
 
+    @Column(name = "uri_id")
+    private Integer uriId;
+
+    @Column(name = "repeat_count")
+    private int repeatCount = 1;
+
+    @Transient
+    private Integer durationMs;
+
+    @Transient
+    private Integer status;
+
 }
@@ -0,0 +1,11 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EndpointKey {
+    private Integer appId;
+    private String uri;
+}
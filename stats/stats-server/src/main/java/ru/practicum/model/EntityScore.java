@@ -0,0 +1,14 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityScore {
+    private String template;
+    private Long entityId;
+    private Double score;
+}
@@ -0,0 +1,44 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+@Getter
+public enum Granularity {
+    MINUTE("endpoint_hits_minute", ChronoUnit.MINUTES, "minute", "1m"),
+    HOUR("endpoint_hits_hour", ChronoUnit.HOURS, "hour", "1h"),
+    DAY("endpoint_hits_day", ChronoUnit.DAYS, "day", "1d");
+
+    private final String table;
+    private final ChronoUnit unit;
+    private final String truncField;
+    private final String step;
+
+    Granularity(String table, ChronoUnit unit, String truncField, String step) {
+        this.table = table;
+        this.unit = unit;
+        this.truncField = truncField;
+        this.step = step;
+    }
+
+    public static Optional<Granularity> fromStep(String step) {
+        for (Granularity granularity : values()) {
+            if (granularity.step.equalsIgnoreCase(step)) {
+                return Optional.of(granularity);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+}
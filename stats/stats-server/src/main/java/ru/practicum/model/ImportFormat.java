@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import java.util.Optional;
+
+public enum ImportFormat {
+    CSV,
+    NDJSON;
+
+    public static Optional<ImportFormat> from(String name) {
+        for (ImportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportResult {
+    private long imported;
+    private long skipped;
+    private long elapsedMs;
+    private long hitsPerSecond;
+}
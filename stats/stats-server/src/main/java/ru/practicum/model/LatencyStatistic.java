@@ -0,0 +1,18 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyStatistic {
+    private String route;
+    private Long requests;
+    private Long errors;
+    private Double p50;
+    private Double p95;
+    private Double p99;
+    private Double max;
+}
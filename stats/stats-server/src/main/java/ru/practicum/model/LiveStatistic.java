@@ -0,0 +1,16 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveStatistic {
+    private App app;
+    private String uri;
+    private Long lastMinute;
+    private Long lastFiveMinutes;
+    private Long lastFifteenMinutes;
+}
@@ -0,0 +1,20 @@
+package ru.practicum.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionInterval {
+    DAY,
+    WEEK;
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        LocalDateTime day = dateTime.truncatedTo(ChronoUnit.DAYS);
+        return this == DAY ? day : day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return this == DAY ? start.plusDays(1) : start.plusWeeks(1);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class QuerySegment {
+    private Granularity granularity;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public static QuerySegment raw(LocalDateTime from, LocalDateTime to) {
+        return new QuerySegment(null, from, to);
+    }
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import java.util.Optional;
+
+public enum TemplateGrouping {
+    ENTITY,
+    TEMPLATE;
+
+    public static Optional<TemplateGrouping> from(String name) {
+        for (TemplateGrouping grouping : values()) {
+            if (grouping.name().equalsIgnoreCase(name)) {
+                return Optional.of(grouping);
+            }
+        }
+        return Optional.empty();
+    }
+}
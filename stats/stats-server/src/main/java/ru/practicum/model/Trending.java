@@ -0,0 +1,17 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Trending {
+    private Long total;
+    private Long errorBound;
+    private Double confidence;
+    private List<TrendingItem> items;
+}
@@ -0,0 +1,48 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Getter
+public class UriTemplate {
+    public static final String ID_PLACEHOLDER = "{id}";
+    private static final String ID_GROUP = "([0-9]{1,18})";
+    private static final String REGEX_META = "\\.^$*+?()[]{}|";
+
+    private final Integer id;
+    private final String template;
+    private final String regex;
+    private final Pattern pattern;
+
+    public UriTemplate(Integer id, String template) {
+        int placeholder = template.indexOf(ID_PLACEHOLDER);
+        if (placeholder < 0 || template.indexOf(ID_PLACEHOLDER, placeholder + 1) >= 0) {
+            throw new IllegalArgumentException("Шаблон адреса должен содержать ровно один " + ID_PLACEHOLDER + ": " + template);
+        }
+        this.id = id;
+        this.template = template;
+        this.regex = "^" + escape(template.substring(0, placeholder))
+                + ID_GROUP
+                + escape(template.substring(placeholder + ID_PLACEHOLDER.length())) + "$";
+        this.pattern = Pattern.compile(regex);
+    }
+
+    public Optional<Long> entityId(String uri) {
+        Matcher matcher = pattern.matcher(uri);
+        return matcher.matches() ? Optional.of(Long.parseLong(matcher.group(1))) : Optional.empty();
+    }
+
+    private static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length());
+        for (char c : literal.toCharArray()) {
+            if (REGEX_META.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
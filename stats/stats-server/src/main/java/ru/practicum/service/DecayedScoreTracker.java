@@ -0,0 +1,172 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.aggregation.TopN;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EntityScore;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.UriTemplate;
+import ru.practicum.storage.EndpointHitsRollupRepository;
+import ru.practicum.storage.HitListener;
+import ru.practicum.storage.UriTemplateRegistry;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class DecayedScoreTracker implements HitListener {
+    private static final double REBASE_AFTER_HALF_LIVES = 32;
+    private static final double MIN_SCORE = 1e-6;
+
+    private final UriTemplateRegistry uriTemplateRegistry;
+    private final EndpointHitsRollupRepository rollupRepository;
+    private final boolean enabled;
+    private final double halfLifeSeconds;
+    private final int rebuildHalfLives;
+    private final Map<EntityKey, DoubleAdder> scores = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long landmark;
+
+    public DecayedScoreTracker(UriTemplateRegistry uriTemplateRegistry,
+                               EndpointHitsRollupRepository rollupRepository,
+                               @Value("${stats.scores.enabled:true}") boolean enabled,
+                               @Value("${stats.scores.half-life-hours:24}") double halfLifeHours,
+                               @Value("${stats.scores.rebuild-half-lives:10}") int rebuildHalfLives) {
+        this.uriTemplateRegistry = uriTemplateRegistry;
+        this.rollupRepository = rollupRepository;
+        this.enabled = enabled;
+        this.halfLifeSeconds = Math.max(1, halfLifeHours * 3600);
+        this.rebuildHalfLives = rebuildHalfLives;
+        this.landmark = toSeconds(LocalDateTime.now());
+    }
+
+    // Runs before the web server and the scheduled flushes start, so no batch can commit while the rollups are read.
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusSeconds((long) (halfLifeSeconds * rebuildHalfLives));
+        LocalDateTime hourCutoff = Granularity.HOUR.floor(now);
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            rollupRepository.streamEntityHits(Granularity.HOUR, from, hourCutoff, (templateId, entityId, bucket, hits) ->
+                    add(new EntityKey(templateId, entityId), bucket.plusMinutes(30), hits));
+            rollupRepository.streamEntityHits(Granularity.MINUTE, hourCutoff, now.plusDays(1), (templateId, entityId, bucket, hits) ->
+                    add(new EntityKey(templateId, entityId), bucket.plusSeconds(30), hits));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Восстановлены рейтинги {} объектов с {}", scores.size(), from);
+    }
+
+    @Override
+    public void onHits(List<EndpointHistory> hits) {
+        if (!enabled) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            for (EndpointHistory hit : hits) {
+                uriTemplateRegistry.match(hit.getUri()).ifPresent(match -> add(
+                        new EntityKey(match.template().getId(), match.entityId()), hit.getRequestTimestamp(), hit.getRepeatCount()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<EntityScore> getTop(UriTemplate template, int limit) {
+        TopN<EntityScore> top = new TopN<>(limit, Comparator.comparing(EntityScore::getScore));
+        lock.readLock().lock();
+        try {
+            double decay = decay();
+            scores.forEach((key, score) -> {
+                if (key.templateId() == template.getId()) {
+                    top.offer(new EntityScore(template.getTemplate(), key.entityId(), score.sum() * decay));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return top.toList();
+    }
+
+    public List<EntityScore> getScores(UriTemplate template, Collection<Long> entityIds) {
+        List<EntityScore> result = new ArrayList<>(entityIds.size());
+        lock.readLock().lock();
+        try {
+            double decay = decay();
+            for (Long entityId : entityIds) {
+                double score = Optional.ofNullable(scores.get(new EntityKey(template.getId(), entityId)))
+                        .map(DoubleAdder::sum)
+                        .orElse(0.0);
+                result.add(new EntityScore(template.getTemplate(), entityId, score * decay));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.scores.maintenance-interval-ms:60000}")
+    public void rebase() {
+        long now = toSeconds(LocalDateTime.now());
+        if ((now - landmark) / halfLifeSeconds >= REBASE_AFTER_HALF_LIVES) {
+            rebaseTo(now);
+        }
+    }
+
+    void rebaseTo(long now) {
+        lock.writeLock().lock();
+        try {
+            double factor = Math.pow(2, -(now - landmark) / halfLifeSeconds);
+            scores.values().removeIf(score -> {
+                double rebased = score.sumThenReset() * factor;
+                score.add(rebased);
+                return rebased < MIN_SCORE;
+            });
+            landmark = now;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Рейтинги пересчитаны относительно {}, объектов: {}", now, scores.size());
+    }
+
+    private void add(EntityKey key, LocalDateTime timestamp, long hits) {
+        long seconds = Math.min(toSeconds(timestamp), toSeconds(LocalDateTime.now()));
+        double weight = hits * Math.pow(2, (seconds - landmark) / halfLifeSeconds);
+        if (!Double.isFinite(weight)) {
+            return;
+        }
+        scores.computeIfAbsent(key, k -> new DoubleAdder()).add(weight);
+    }
+
+    private double decay() {
+        return Math.pow(2, -(toSeconds(LocalDateTime.now()) - landmark) / halfLifeSeconds);
+    }
+
+    private static long toSeconds(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private record EntityKey(int templateId, long entityId) {
+    }
+}
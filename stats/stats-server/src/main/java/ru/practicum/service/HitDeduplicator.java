@@ -0,0 +1,102 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHistory;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class HitDeduplicator {
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final int maxEntries;
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final Counter collapsed;
+
+    public HitDeduplicator(@Value("${stats.dedup.enabled:false}") boolean enabled,
+                           @Value("${stats.dedup.window-seconds:2}") long windowSeconds,
+                           @Value("${stats.dedup.max-entries:100000}") int maxEntries,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.maxEntries = maxEntries;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            this.collapsed = Counter.builder("stats.dedup.collapsed").register(registry);
+            Gauge.builder("stats.dedup.pending", pending, Map::size).register(registry);
+        } else {
+            this.collapsed = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<EndpointHistory> add(List<EndpointHistory> hits) {
+        List<EndpointHistory> overflow = new ArrayList<>();
+        for (EndpointHistory hit : hits) {
+            Key key = new Key(bucket(hit), hit.getApp().getId(), hit.getUriId(), hit.getIp());
+            if (pending.size() >= maxEntries && !pending.containsKey(key)) {
+                overflow.add(hit);
+                continue;
+            }
+            pending.compute(key, (k, first) -> {
+                if (first == null) {
+                    return new Pending(hit, System.nanoTime());
+                }
+                first.hit().setRepeatCount(first.hit().getRepeatCount() + hit.getRepeatCount());
+                if (collapsed != null) {
+                    collapsed.increment();
+                }
+                return first;
+            });
+        }
+        return overflow;
+    }
+
+    public List<EndpointHistory> drainClosed() {
+        return drain(System.nanoTime() - TimeUnit.SECONDS.toNanos(windowSeconds));
+    }
+
+    public List<EndpointHistory> drainAll() {
+        return drain(Long.MAX_VALUE);
+    }
+
+    private List<EndpointHistory> drain(long arrivedBefore) {
+        List<EndpointHistory> closed = new ArrayList<>();
+        Iterator<Map.Entry<Key, Pending>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Pending> entry = entries.next();
+            if (arrivedBefore == Long.MAX_VALUE || entry.getValue().arrivedAt() - arrivedBefore < 0) {
+                Pending removed = pending.remove(entry.getKey());
+                if (removed != null) {
+                    closed.add(removed.hit());
+                }
+            }
+        }
+        return closed;
+    }
+
+    private long bucket(EndpointHistory hit) {
+        return hit.getRequestTimestamp().toEpochSecond(ZoneOffset.UTC) / windowSeconds;
+    }
+
+    private record Key(long bucket, int appId, int uriId, String ip) {
+    }
+
+    private record Pending(EndpointHistory hit, long arrivedAt) {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.ImportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitImportRunner implements ApplicationRunner {
+    public static final String IMPORT_OPTION = "import";
+    private static final String FORMAT_OPTION = "import-format";
+
+    private final HitImportService hitImportService;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+
+        List<String> formats = args.getOptionValues(FORMAT_OPTION);
+        for (String file : args.getOptionValues(IMPORT_OPTION)) {
+            Path path = Path.of(file);
+            ImportFormat format = formats == null || formats.isEmpty() ? formatOf(path) : ImportFormat.from(formats.get(0))
+                    .orElseThrow(() -> new ValidationException("Неизвестный формат импорта: " + formats.get(0)));
+            log.info("Импорт файла {} в формате {}", path, format);
+            try (InputStream input = Files.newInputStream(path)) {
+                hitImportService.importHits(input, format);
+            }
+        }
+    }
+
+    private ImportFormat formatOf(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? ImportFormat.NDJSON : ImportFormat.CSV;
+    }
+}
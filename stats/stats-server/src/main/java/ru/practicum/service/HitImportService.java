@@ -0,0 +1,274 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.mapper.IpAddressMapper;
+import ru.practicum.mapper.StatisticMapper;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.ImportFormat;
+import ru.practicum.model.ImportResult;
+import ru.practicum.stats.dto.HitRequestDto;
+import ru.practicum.storage.AppDictionary;
+import ru.practicum.storage.EndpointHistoryBulkLoader;
+import ru.practicum.storage.EndpointHistoryPartitionManager;
+import ru.practicum.storage.EndpointHitsRollupRepository;
+import ru.practicum.storage.EndpointUniquesRepository;
+import ru.practicum.storage.EndpointVisitorsRepository;
+import ru.practicum.storage.HotWindowHitStore;
+import ru.practicum.storage.UriDictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class HitImportService {
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final AppDictionary appDictionary;
+    private final UriDictionary uriDictionary;
+    private final EndpointHistoryBulkLoader bulkLoader;
+    private final EndpointHistoryPartitionManager partitionManager;
+    private final EndpointHitsRollupRepository rollupRepository;
+    private final EndpointUniquesRepository uniquesRepository;
+    private final EndpointVisitorsRepository visitorsRepository;
+    private final HotWindowHitStore hotWindowHitStore;
+    private final StatsResultCache statsResultCache;
+    private final int batchSize;
+
+    public HitImportService(ObjectMapper objectMapper,
+                            TransactionTemplate transactionTemplate,
+                            AppDictionary appDictionary,
+                            UriDictionary uriDictionary,
+                            EndpointHistoryBulkLoader bulkLoader,
+                            EndpointHistoryPartitionManager partitionManager,
+                            EndpointHitsRollupRepository rollupRepository,
+                            EndpointUniquesRepository uniquesRepository,
+                            EndpointVisitorsRepository visitorsRepository,
+                            HotWindowHitStore hotWindowHitStore,
+                            StatsResultCache statsResultCache,
+                            @Value("${stats.import.batch-size:50000}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.appDictionary = appDictionary;
+        this.uriDictionary = uriDictionary;
+        this.bulkLoader = bulkLoader;
+        this.partitionManager = partitionManager;
+        this.rollupRepository = rollupRepository;
+        this.uniquesRepository = uniquesRepository;
+        this.visitorsRepository = visitorsRepository;
+        this.hotWindowHitStore = hotWindowHitStore;
+        this.statsResultCache = statsResultCache;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportResult importHits(InputStream input, ImportFormat format) {
+        long started = System.nanoTime();
+        long imported = 0;
+        long skipped = 0;
+        LocalDateTime min = null;
+        LocalDateTime max = null;
+
+        List<HitRequestDto> batch = new ArrayList<>(batchSize);
+        String staging = bulkLoader.createStaging();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                boolean header = first && format == ImportFormat.CSV && line.startsWith("app,");
+                first = false;
+                if (line.isBlank() || header) {
+                    continue;
+                }
+
+                HitRequestDto hit = parse(line, format);
+                if (hit == null) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(hit);
+                if (batch.size() == batchSize) {
+                    List<EndpointHistory> loaded = load(staging, batch);
+                    skipped += batch.size() - loaded.size();
+                    imported += loaded.size();
+                    min = earliest(min, loaded);
+                    max = latest(max, loaded);
+                    batch.clear();
+                    log.info("Импортировано {} запросов ({} в секунду)", imported, perSecond(imported, started));
+                }
+            }
+
+            List<EndpointHistory> loaded = load(staging, batch);
+            skipped += batch.size() - loaded.size();
+            imported += loaded.size();
+            min = earliest(min, loaded);
+            max = latest(max, loaded);
+
+            if (min != null) {
+                publish(staging, min, max);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать файл импорта: {}", e.toString());
+            throw new ValidationException("Не удалось прочитать файл импорта");
+        } finally {
+            dropStaging(staging);
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        ImportResult result = new ImportResult(imported, skipped, elapsedMs, perSecond(imported, started));
+        log.info("Импорт завершен: загружено {}, пропущено {}, {} мс, {} запросов в секунду",
+                imported, skipped, elapsedMs, result.getHitsPerSecond());
+        return result;
+    }
+
+    private List<EndpointHistory> load(String staging, List<HitRequestDto> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, App> apps = new HashMap<>();
+        Set<String> uris = new HashSet<>();
+        for (HitRequestDto hit : batch) {
+            apps.computeIfAbsent(hit.getApp(), appDictionary::getByName);
+            uris.add(hit.getUri());
+        }
+        Map<String, Integer> uriIds = uriDictionary.getIds(uris);
+
+        List<EndpointHistory> hits = new ArrayList<>(batch.size());
+        for (HitRequestDto dto : batch) {
+            try {
+                EndpointHistory hit = StatisticMapper.toEndpointHistory(dto);
+                if (!partitionManager.accepts(hit.getRequestTimestamp())) {
+                    log.debug("Пропущен запрос с датой вне допустимого диапазона {}", dto.getTimestamp());
+                    continue;
+                }
+                hit.setApp(apps.get(dto.getApp()));
+                hit.setUriId(uriIds.get(dto.getUri()));
+                hits.add(hit);
+            } catch (DateTimeParseException e) {
+                log.debug("Пропущен запрос с некорректной датой {}", dto.getTimestamp());
+            }
+        }
+        if (hits.isEmpty()) {
+            return hits;
+        }
+
+        List<LocalDateTime> timestamps = new ArrayList<>(hits.size());
+        for (EndpointHistory hit : hits) {
+            timestamps.add(hit.getRequestTimestamp());
+        }
+        partitionManager.ensurePartitions(timestamps);
+        bulkLoader.copy(staging, hits);
+        return hits;
+    }
+
+    private void publish(String staging, LocalDateTime min, LocalDateTime max) {
+        transactionTemplate.executeWithoutResult(status -> {
+            bulkLoader.publish(staging);
+            rollupRepository.addFrom(staging);
+            visitorsRepository.addFrom(staging);
+            uniquesRepository.addFrom(staging);
+        });
+        hotWindowHitStore.advanceWindowStart(max);
+        statsResultCache.invalidate();
+        log.info("Агрегаты дополнены импортом за период с {} по {}", min, max);
+    }
+
+    private void dropStaging(String staging) {
+        try {
+            bulkLoader.dropStaging(staging);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить промежуточную таблицу импорта {}", staging, e);
+        }
+    }
+
+    private HitRequestDto parse(String line, ImportFormat format) {
+        HitRequestDto hit;
+        if (format == ImportFormat.NDJSON) {
+            try {
+                hit = objectMapper.readValue(line, HitRequestDto.class);
+            } catch (IOException e) {
+                return null;
+            }
+        } else {
+            List<String> fields = splitCsv(line);
+            if (fields.size() != 4) {
+                return null;
+            }
+            hit = new HitRequestDto(fields.get(0), fields.get(1), fields.get(2), fields.get(3));
+        }
+
+        if (hit.getApp() == null || hit.getUri() == null || hit.getIp() == null || hit.getTimestamp() == null
+                || !IpAddressMapper.isValid(hit.getIp())) {
+            return null;
+        }
+        return hit;
+    }
+
+    private List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private LocalDateTime earliest(LocalDateTime current, List<EndpointHistory> hits) {
+        for (EndpointHistory hit : hits) {
+            if (current == null || hit.getRequestTimestamp().isBefore(current)) {
+                current = hit.getRequestTimestamp();
+            }
+        }
+        return current;
+    }
+
+    private LocalDateTime latest(LocalDateTime current, List<EndpointHistory> hits) {
+        for (EndpointHistory hit : hits) {
+            if (current == null || hit.getRequestTimestamp().isAfter(current)) {
+                current = hit.getRequestTimestamp();
+            }
+        }
+        return current;
+    }
+
+    private long perSecond(long hits, long startedNanos) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startedNanos);
+        return hits * 1_000_000_000L / elapsedNanos;
+    }
+}
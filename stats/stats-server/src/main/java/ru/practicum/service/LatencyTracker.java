@@ -0,0 +1,109 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.aggregation.LatencySummary;
+import ru.practicum.aggregation.TopN;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.LatencyStatistic;
+import ru.practicum.storage.EndpointLatencyRepository;
+import ru.practicum.storage.LatencyKey;
+import ru.practicum.storage.UriTemplateRegistry;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+public class LatencyTracker {
+    private final EndpointLatencyRepository endpointLatencyRepository;
+    private final UriTemplateRegistry uriTemplateRegistry;
+    private final boolean enabled;
+    private Map<LatencyKey, LatencySummary> pending = new HashMap<>();
+
+    public LatencyTracker(EndpointLatencyRepository endpointLatencyRepository,
+                          UriTemplateRegistry uriTemplateRegistry,
+                          @Value("${stats.latency.enabled:true}") boolean enabled) {
+        this.endpointLatencyRepository = endpointLatencyRepository;
+        this.uriTemplateRegistry = uriTemplateRegistry;
+        this.enabled = enabled;
+    }
+
+    public void record(List<EndpointHistory> hits) {
+        if (!enabled) {
+            return;
+        }
+
+        for (EndpointHistory hit : hits) {
+            if (hit.getDurationMs() == null) {
+                continue;
+            }
+            LatencyKey key = new LatencyKey(Granularity.HOUR.floor(hit.getRequestTimestamp()), route(hit.getUri()));
+            synchronized (this) {
+                pending.computeIfAbsent(key, k -> endpointLatencyRepository.newSummary()).add(hit.getDurationMs(), hit.getStatus());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.latency.flush-interval-ms:10000}")
+    public void flush() {
+        Map<LatencyKey, LatencySummary> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        try {
+            endpointLatencyRepository.add(batch);
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить распределения времени ответа, повтор при следующей выгрузке", e);
+            synchronized (this) {
+                batch.forEach((key, summary) -> pending.merge(key, summary, LatencySummary::merge));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    public List<LatencyStatistic> getLatency(LocalDateTime start, LocalDateTime end, List<String> routes, int limit) {
+        LocalDateTime from = Granularity.HOUR.floor(start);
+        Map<String, LatencySummary> summaries = endpointLatencyRepository.find(from, end, routes);
+        synchronized (this) {
+            pending.forEach((key, summary) -> {
+                boolean inRange = !key.bucket().isBefore(from) && key.bucket().isBefore(end);
+                if (inRange && (routes == null || routes.isEmpty() || routes.contains(key.route()))) {
+                    summaries.computeIfAbsent(key.route(), route -> endpointLatencyRepository.newSummary()).merge(summary);
+                }
+            });
+        }
+
+        TopN<LatencyStatistic> top = new TopN<>(limit, Comparator.comparing(LatencyStatistic::getRequests));
+        summaries.forEach((route, summary) -> {
+            if (summary.getRequests() > 0) {
+                top.offer(new LatencyStatistic(route, summary.getRequests(), summary.getErrors(),
+                        summary.getDigest().quantile(0.5), summary.getDigest().quantile(0.95),
+                        summary.getDigest().quantile(0.99), summary.getDigest().getMax()));
+            }
+        });
+        return top.toList();
+    }
+
+    private String route(String uri) {
+        return uriTemplateRegistry.match(uri)
+                .map(match -> match.template().getTemplate())
+                .orElse(uri);
+    }
+}
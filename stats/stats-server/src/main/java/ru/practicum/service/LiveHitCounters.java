@@ -0,0 +1,107 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.aggregation.SecondRing;
+import ru.practicum.aggregation.TopN;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EndpointKey;
+import ru.practicum.model.LiveStatistic;
+import ru.practicum.storage.HitListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class LiveHitCounters implements HitListener {
+    private static final int MINUTE = 60;
+    private static final int FIVE_MINUTES = 5 * MINUTE;
+    private static final int FIFTEEN_MINUTES = 15 * MINUTE;
+    private static final Comparator<LiveStatistic> ORDER = Comparator.comparing(LiveStatistic::getLastMinute)
+            .thenComparing(LiveStatistic::getLastFiveMinutes)
+            .thenComparing(LiveStatistic::getLastFifteenMinutes);
+
+    private final boolean enabled;
+    private final Map<EndpointKey, Counter> counters = new ConcurrentHashMap<>();
+
+    public LiveHitCounters(@Value("${stats.live.enabled:true}") boolean enabled,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        meterRegistry.ifAvailable(registry -> Gauge.builder("stats.live.endpoints", counters, Map::size).register(registry));
+    }
+
+    @Override
+    public void onHits(List<EndpointHistory> hits) {
+        if (!enabled) {
+            return;
+        }
+        long now = currentSecond();
+        for (EndpointHistory hit : hits) {
+            long second = hit.getRequestTimestamp().toEpochSecond(ZoneOffset.UTC);
+            if (second > now || now - second >= FIFTEEN_MINUTES) {
+                continue;
+            }
+            EndpointKey key = new EndpointKey(hit.getApp().getId(), hit.getUri());
+            while (true) {
+                Counter counter = counters.computeIfAbsent(key, k -> new Counter(hit.getApp(), new SecondRing(FIFTEEN_MINUTES)));
+                if (counter.ring().add(second, hit.getRepeatCount())) {
+                    break;
+                }
+                counters.remove(key, counter);
+            }
+        }
+    }
+
+    public List<LiveStatistic> getStatistic(List<String> uris, Integer limit) {
+        long now = currentSecond();
+        Set<String> wanted = uris == null || uris.isEmpty() ? null : new HashSet<>(uris);
+
+        List<LiveStatistic> statistics = new ArrayList<>();
+        counters.forEach((key, counter) -> {
+            if (wanted != null && !wanted.contains(key.getUri())) {
+                return;
+            }
+            long[] sums = counter.ring().sums(now, MINUTE, FIVE_MINUTES, FIFTEEN_MINUTES);
+            if (sums[2] > 0) {
+                statistics.add(new LiveStatistic(counter.app(), key.getUri(), sums[0], sums[1], sums[2]));
+            }
+        });
+
+        if (limit == null) {
+            statistics.sort(ORDER.reversed());
+            return statistics;
+        }
+        TopN<LiveStatistic> top = new TopN<>(limit, ORDER);
+        statistics.forEach(top::offer);
+        return top.toList();
+    }
+
+    @Scheduled(fixedDelayString = "${stats.live.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = currentSecond() - FIFTEEN_MINUTES;
+        counters.forEach((key, counter) -> {
+            if (counter.ring().retire(cutoff)) {
+                counters.remove(key, counter);
+            }
+        });
+    }
+
+    private static long currentSecond() {
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private record Counter(App app, SecondRing ring) {
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.storage.EndpointHistoryPartitionManager;
+
+import java.time.LocalDateTime;
+
+@Service
+public class RetentionService {
+    private final EndpointHistoryPartitionManager partitionManager;
+    private final StatsResultCache statsResultCache;
+    private final int rawRetentionDays;
+
+    public RetentionService(EndpointHistoryPartitionManager partitionManager,
+                            StatsResultCache statsResultCache,
+                            @Value("${stats.retention.raw-days:0}") int rawRetentionDays) {
+        this.partitionManager = partitionManager;
+        this.statsResultCache = statsResultCache;
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    @Scheduled(cron = "${stats.retention.cron:0 15 3 * * *}")
+    public void deleteExpiredHits() {
+        if (rawRetentionDays <= 0) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(rawRetentionDays);
+        if (!partitionManager.dropPartitionsBefore(cutoff).isEmpty()) {
+            statsResultCache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.QuerySegment;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class StatsQueryPlanner {
+    private static final Granularity[] ROLLUP_LEVELS = {Granularity.DAY, Granularity.HOUR, Granularity.MINUTE};
+    private static final Granularity[] SKETCH_LEVELS = {Granularity.HOUR};
+
+    private final int rawRetentionDays;
+
+    public StatsQueryPlanner(@Value("${stats.retention.raw-days:0}") int rawRetentionDays) {
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    public static LocalDateTime exclusiveEnd(LocalDateTime end) {
+        return end.plus(1, ChronoUnit.MICROS);
+    }
+
+    public List<QuerySegment> plan(LocalDateTime from, LocalDateTime to) {
+        return plan(from, to, ROLLUP_LEVELS);
+    }
+
+    public List<QuerySegment> planUnique(LocalDateTime from, LocalDateTime to) {
+        return plan(from, to, SKETCH_LEVELS);
+    }
+
+    public List<QuerySegment> planSeries(LocalDateTime from, LocalDateTime to, Granularity step) {
+        List<Granularity> levels = new ArrayList<>();
+        for (Granularity granularity : ROLLUP_LEVELS) {
+            if (granularity.compareTo(step) <= 0) {
+                levels.add(granularity);
+            }
+        }
+        return plan(from, to, levels.toArray(new Granularity[0]));
+    }
+
+    public List<QuerySegment> planUniqueSeries(LocalDateTime from, LocalDateTime to, Granularity step) {
+        if (step.compareTo(Granularity.HOUR) >= 0) {
+            return plan(from, to, SKETCH_LEVELS);
+        }
+
+        LocalDateTime rawAvailableFrom = rawAvailableFrom();
+        if (rawAvailableFrom != null && from.isBefore(rawAvailableFrom)) {
+            log.warn("Уникальные посещения с шагом {} доступны только с {}", step.getStep(), rawAvailableFrom);
+            throw new ValidationException("Уникальные посещения с шагом " + step.getStep() + " доступны только с " + rawAvailableFrom);
+        }
+        return plan(from, to, new Granularity[0]);
+    }
+
+    private List<QuerySegment> plan(LocalDateTime from, LocalDateTime to, Granularity[] levels) {
+        List<QuerySegment> segments = new ArrayList<>();
+        cover(from, to, levels, 0, segments);
+
+        LocalDateTime rawAvailableFrom = rawAvailableFrom();
+        if (rawAvailableFrom != null && levels.length > 0) {
+            Granularity finest = levels[levels.length - 1];
+            for (int i = 0; i < segments.size(); i++) {
+                QuerySegment segment = segments.get(i);
+                if (segment.isRaw() && segment.getFrom().isBefore(rawAvailableFrom)) {
+                    segments.set(i, new QuerySegment(finest, finest.floor(segment.getFrom()), finest.ceil(segment.getTo())));
+                }
+            }
+        }
+
+        return segments;
+    }
+
+    private LocalDateTime rawAvailableFrom() {
+        return rawRetentionDays > 0 ? LocalDateTime.now().minusDays(rawRetentionDays) : null;
+    }
+
+    private void cover(LocalDateTime from, LocalDateTime to, Granularity[] levels, int level, List<QuerySegment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == levels.length) {
+            segments.add(QuerySegment.raw(from, to));
+            return;
+        }
+
+        Granularity granularity = levels[level];
+        LocalDateTime bucketsFrom = granularity.ceil(from);
+        LocalDateTime bucketsTo = granularity.floor(to);
+        if (!bucketsFrom.isBefore(bucketsTo)) {
+            cover(from, to, levels, level + 1, segments);
+            return;
+        }
+
+        cover(from, bucketsFrom, levels, level + 1, segments);
+        segments.add(new QuerySegment(granularity, bucketsFrom, bucketsTo));
+        cover(bucketsTo, to, levels, level + 1, segments);
+    }
+}
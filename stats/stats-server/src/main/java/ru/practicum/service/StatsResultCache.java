@@ -0,0 +1,215 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.Statistic;
+import ru.practicum.storage.HitListener;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+@Component
+public class StatsResultCache implements HitListener {
+    private final int maxEntries;
+    private final long maxStalenessNanos;
+    private final Granularity keyGranularity;
+    private final AtomicLong watermark = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<Key, Entry> entries;
+
+    public StatsResultCache(@Value("${stats.cache.max-entries:1000}") int maxEntries,
+                            @Value("${stats.cache.max-staleness-ms:5000}") long maxStalenessMs,
+                            @Value("${stats.cache.key-granularity:MINUTE}") Granularity keyGranularity,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.maxStalenessNanos = maxStalenessMs * 1_000_000L;
+        this.keyGranularity = keyGranularity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > StatsResultCache.this.maxEntries;
+            }
+        };
+        meterRegistry.ifAvailable(this::registerMetrics);
+    }
+
+    // Requests falling into the same key buckets share an entry: the exact bounds it was loaded for are served while no
+    // overlapping hits arrive, any other bounds only within max-staleness.
+    public List<Statistic> get(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                               Integer limit, BiFunction<LocalDateTime, LocalDateTime, List<Statistic>> loader) {
+        if (maxEntries <= 0) {
+            misses.incrementAndGet();
+            return loader.apply(start, end);
+        }
+
+        Key key = key(Query.STATISTIC, start, end, uris, unique, exact, limit);
+        Entry entry = lookup(key, start, end);
+        if (entry != null) {
+            @SuppressWarnings("unchecked")
+            List<Statistic> statistics = (List<Statistic>) entry.value();
+            return statistics;
+        }
+
+        long loadWatermark = watermark.get();
+        List<Statistic> statistics = List.copyOf(loader.apply(start, end));
+        store(key, statistics, start, end, loadWatermark);
+        return statistics;
+    }
+
+    // Each window is cached on its own so that a request reloads only the windows missing from the cache, in one call.
+    public Map<String, Long> getViews(Map<String, LocalDateTime> windows, LocalDateTime end, boolean unique,
+                                      BiFunction<Map<String, LocalDateTime>, LocalDateTime, Map<String, Long>> loader) {
+        if (maxEntries <= 0) {
+            misses.addAndGet(windows.size());
+            return loader.apply(windows, end);
+        }
+
+        Map<String, Long> views = new HashMap<>();
+        Map<String, LocalDateTime> missing = new LinkedHashMap<>();
+        windows.forEach((uri, start) -> {
+            Entry entry = lookup(key(Query.VIEWS, start, end, List.of(uri), unique, null, null), start, end);
+            if (entry == null) {
+                missing.put(uri, start);
+            } else if (entry.value() != null) {
+                views.put(uri, (Long) entry.value());
+            }
+        });
+        if (missing.isEmpty()) {
+            return views;
+        }
+
+        long loadWatermark = watermark.get();
+        Map<String, Long> loaded = loader.apply(missing, end);
+        missing.forEach((uri, start) -> {
+            Long count = loaded.get(uri);
+            store(key(Query.VIEWS, start, end, List.of(uri), unique, null, null), count, start, end, loadWatermark);
+            if (count != null) {
+                views.put(uri, count);
+            }
+        });
+        return views;
+    }
+
+    @Override
+    public void onHits(List<EndpointHistory> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        LocalDateTime first = hits.get(0).getRequestTimestamp();
+        LocalDateTime last = first;
+        Set<String> uris = new HashSet<>();
+        for (EndpointHistory hit : hits) {
+            LocalDateTime timestamp = hit.getRequestTimestamp();
+            first = timestamp.isBefore(first) ? timestamp : first;
+            last = timestamp.isAfter(last) ? timestamp : last;
+            uris.add(hit.getUri());
+        }
+        outdate(first, last, uris);
+    }
+
+    public void invalidate() {
+        outdate(LocalDateTime.MIN, LocalDateTime.MAX, null);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Key key(Query query, LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                    Integer limit) {
+        return new Key(query, keyGranularity.floor(start), keyGranularity.floor(end),
+                uris == null ? List.of() : List.copyOf(new TreeSet<>(uris)), unique, exact, limit);
+    }
+
+    private Entry lookup(Key key, LocalDateTime start, LocalDateTime end) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && isFresh(entry, start, end)) {
+                hits.incrementAndGet();
+                return entry;
+            }
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void store(Key key, Object value, LocalDateTime start, LocalDateTime end, long loadWatermark) {
+        synchronized (entries) {
+            // Hits committed during the load may be missing from the value, so such an entry is only served while young.
+            boolean current = watermark.get() == loadWatermark;
+            entries.put(key, new Entry(value, start, end, current, System.nanoTime()));
+        }
+    }
+
+    private void outdate(LocalDateTime first, LocalDateTime last, Set<String> uris) {
+        watermark.incrementAndGet();
+        synchronized (entries) {
+            entries.replaceAll((key, entry) -> entry.current() && entry.overlaps(first, last)
+                    && (uris == null || key.uris().isEmpty() || !Collections.disjoint(key.uris(), uris))
+                    ? entry.outdated() : entry);
+        }
+    }
+
+    private boolean isFresh(Entry entry, LocalDateTime start, LocalDateTime end) {
+        return entry.current() && entry.start().equals(start) && entry.end().equals(end)
+                || System.nanoTime() - entry.loadedAt() < maxStalenessNanos;
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("stats.cache.gets", this, StatsResultCache::getHits).tag("result", "hit").register(registry);
+        FunctionCounter.builder("stats.cache.gets", this, StatsResultCache::getMisses).tag("result", "miss").register(registry);
+        Gauge.builder("stats.cache.hit.ratio", this, StatsResultCache::getHitRatio).register(registry);
+        Gauge.builder("stats.cache.size", this, StatsResultCache::size).register(registry);
+    }
+
+    private enum Query {
+        STATISTIC,
+        VIEWS
+    }
+
+    private record Key(Query query, LocalDateTime startBucket, LocalDateTime endBucket, List<String> uris, Boolean unique,
+                       Boolean exact, Integer limit) {
+    }
+
+    private record Entry(Object value, LocalDateTime start, LocalDateTime end, boolean current, long loadedAt) {
+        boolean overlaps(LocalDateTime first, LocalDateTime last) {
+            return !last.isBefore(start) && !first.isAfter(end);
+        }
+
+        Entry outdated() {
+            return new Entry(value, start, end, false, loadedAt);
+        }
+    }
+}
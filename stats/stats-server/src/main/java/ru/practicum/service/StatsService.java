@@ -1,78 +1,533 @@
 package ru.practicum.service;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.aggregation.HyperLogLog;
+import ru.practicum.aggregation.TopN;
 import ru.practicum.exception.ValidationException;
+import ru.practicum.mapper.IpAddressMapper;
 import ru.practicum.mapper.StatisticMapper;
-import ru.practicum.model.App;
 import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EndpointKey;
+import ru.practicum.model.EntityScore;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.LatencyStatistic;
+import ru.practicum.model.LiveStatistic;
+import ru.practicum.model.QuerySegment;
 import ru.practicum.model.Statistic;
+import ru.practicum.model.TemplateGrouping;
+import ru.practicum.model.TemplateStatistic;
+import ru.practicum.model.TimeSeriesPoint;
+import ru.practicum.model.Trending;
+import ru.practicum.model.UriTemplate;
 import ru.practicum.stats.dto.HitRequestDto;
-import ru.practicum.storage.AppRepository;
+import ru.practicum.stats.dto.StatsBinaryCodec;
+import ru.practicum.stats.dto.StatsQueryDto;
+import ru.practicum.stats.dto.ViewWindowDto;
+import ru.practicum.stats.dto.ViewsRequestDto;
+import ru.practicum.storage.AppDictionary;
+import ru.practicum.storage.EndpointHistoryBatchWriter;
+import ru.practicum.storage.EndpointHistoryPartitionManager;
 import ru.practicum.storage.EndpointHistoryRepository;
+import ru.practicum.storage.EndpointUniquesRepository;
+import ru.practicum.storage.EndpointVisitorsRepository;
+import ru.practicum.storage.HotWindowHitStore;
+import ru.practicum.storage.IngestSpool;
+import ru.practicum.storage.UriDictionary;
+import ru.practicum.storage.UriTemplateRegistry;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StatsService {
+    private static final int MAX_SERIES_POINTS = 10000;
 
-    private final AppRepository appRepository;
+    private final AppDictionary appDictionary;
+    private final UriDictionary uriDictionary;
+    private final UriTemplateRegistry uriTemplateRegistry;
     private final EndpointHistoryRepository endpointHistoryRepository;
+    private final EndpointHistoryBatchWriter endpointHistoryBatchWriter;
+    private final EndpointHistoryPartitionManager endpointHistoryPartitionManager;
+    private final IngestSpool ingestSpool;
+    private final EndpointUniquesRepository endpointUniquesRepository;
+    private final EndpointVisitorsRepository endpointVisitorsRepository;
+    private final StatsQueryPlanner statsQueryPlanner;
+    private final HotWindowHitStore hotWindowHitStore;
+    private final StatsResultCache statsResultCache;
+    private final HitDeduplicator hitDeduplicator;
+    private final LiveHitCounters liveHitCounters;
+    private final TrendingTracker trendingTracker;
+    private final DecayedScoreTracker decayedScoreTracker;
+    private final LatencyTracker latencyTracker;
 
     public void createEndpointHistory(HitRequestDto hitRequestDto) {
-        validatePostFields(hitRequestDto);
+        createEndpointHistories(List.of(hitRequestDto));
+    }
+
+    public void createEndpointHistories(List<HitRequestDto> hitRequestDtos) {
+        if (hitRequestDtos == null) {
+            log.warn("Не передан список запросов");
+            throw new ValidationException("Не передан список запросов");
+        }
+        hitRequestDtos.forEach(this::validatePostFields);
+
+        List<EndpointHistory> endpointHistories = new ArrayList<>(hitRequestDtos.size());
+        List<String> apps = new ArrayList<>(hitRequestDtos.size());
+        for (HitRequestDto hitRequestDto : hitRequestDtos) {
+            EndpointHistory endpointHistory = StatisticMapper.toEndpointHistory(hitRequestDto);
+            validateTimestamp(endpointHistory.getRequestTimestamp());
+            endpointHistories.add(endpointHistory);
+            apps.add(hitRequestDto.getApp());
+        }
+
+        store(resolve(endpointHistories, apps));
+    }
+
+    public void createEndpointHistories(InputStream binaryHits) {
+        List<EndpointHistory> endpointHistories = new ArrayList<>();
+        List<String> apps = new ArrayList<>();
+        try {
+            StatsBinaryCodec.readHits(binaryHits, (app, uri, ip, epochMillis, durationMs, status) -> {
+                validatePostFields(app, uri, ip);
+                validateTiming(durationMs, status);
+                EndpointHistory endpointHistory = StatisticMapper.toEndpointHistory(uri, ip, epochMillis, durationMs, status);
+                validateTimestamp(endpointHistory.getRequestTimestamp());
+                endpointHistories.add(endpointHistory);
+                apps.add(app);
+            });
+        } catch (IOException e) {
+            log.warn("Не удалось прочитать пакет запросов: {}", e.toString());
+            throw new ValidationException("Не удалось прочитать пакет запросов");
+        }
+
+        store(resolve(endpointHistories, apps));
+    }
+
+    @Scheduled(fixedDelayString = "${stats.dedup.flush-interval-ms:1000}")
+    public void flushDeduplicated() {
+        if (hitDeduplicator.isEnabled()) {
+            storeNow(hitDeduplicator.drainClosed());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (hitDeduplicator.isEnabled()) {
+            storeNow(hitDeduplicator.drainAll());
+        }
+    }
 
-        App app = getAppByName(hitRequestDto.getApp());
-        EndpointHistory endpointHistory = StatisticMapper.toEndpointHistory(hitRequestDto);
-        endpointHistory.setApp(app);
+    private void store(List<EndpointHistory> endpointHistories) {
+        latencyTracker.record(endpointHistories);
+        if (hitDeduplicator.isEnabled()) {
+            storeNow(hitDeduplicator.add(endpointHistories));
+        } else {
+            storeNow(endpointHistories);
+        }
+    }
 
-        endpointHistoryRepository.save(endpointHistory);
+    private void storeNow(List<EndpointHistory> endpointHistories) {
+        if (endpointHistories.isEmpty()) {
+            return;
+        }
+        if (ingestSpool.isEnabled()) {
+            ingestSpool.append(endpointHistories);
+        } else {
+            endpointHistoryBatchWriter.write(endpointHistories);
+        }
     }
 
-    private App getAppByName(String name) {
-        Optional<App> app = appRepository.findByName(name);
-        return app.orElseGet(() -> appRepository.save(new App(name)));
+    private List<EndpointHistory> resolve(List<EndpointHistory> endpointHistories, List<String> apps) {
+        Set<String> uris = new HashSet<>();
+        for (EndpointHistory endpointHistory : endpointHistories) {
+            uris.add(endpointHistory.getUri());
+        }
+        Map<String, Integer> uriIds = uriDictionary.getIds(uris);
+
+        for (int i = 0; i < endpointHistories.size(); i++) {
+            EndpointHistory endpointHistory = endpointHistories.get(i);
+            endpointHistory.setApp(appDictionary.getByName(apps.get(i)));
+            endpointHistory.setUriId(uriIds.get(endpointHistory.getUri()));
+        }
+        return endpointHistories;
     }
 
     private void validatePostFields(HitRequestDto hitRequestDto) {
-        if (hitRequestDto.getApp() == null || hitRequestDto.getIp() == null || hitRequestDto.getUri() == null || hitRequestDto.getTimestamp() == null) {
+        if (hitRequestDto == null || hitRequestDto.getTimestamp() == null) {
             log.warn("Не заполнены обязательные поля");
             throw new ValidationException("Не заполнены обязательные поля");
         }
+        validatePostFields(hitRequestDto.getApp(), hitRequestDto.getUri(), hitRequestDto.getIp());
+        validateTiming(hitRequestDto.getDurationMs(), hitRequestDto.getStatus());
+    }
+
+    private void validatePostFields(String app, String uri, String ip) {
+        if (app == null || uri == null || ip == null) {
+            log.warn("Не заполнены обязательные поля");
+            throw new ValidationException("Не заполнены обязательные поля");
+        }
+        if (!IpAddressMapper.isValid(ip)) {
+            log.warn("Некорректный IP-адрес {}", ip);
+            throw new ValidationException("Некорректный IP-адрес " + ip);
+        }
     }
 
-    public List<Statistic> getStatistic(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    private void validateTimestamp(LocalDateTime timestamp) {
+        if (!endpointHistoryPartitionManager.accepts(timestamp)) {
+            log.warn("Дата запроса вне допустимого диапазона: {}", timestamp);
+            throw new ValidationException("Дата запроса вне допустимого диапазона: " + timestamp);
+        }
+    }
+
+    private void validateTiming(Integer durationMs, Integer status) {
+        if (durationMs != null && durationMs < 0) {
+            log.warn("Длительность запроса не может быть отрицательной: {}", durationMs);
+            throw new ValidationException("Длительность запроса не может быть отрицательной");
+        }
+        if (status != null && (status < 100 || status > 599)) {
+            log.warn("Некорректный код ответа {}", status);
+            throw new ValidationException("Некорректный код ответа " + status);
+        }
+    }
+
+    public List<Statistic> getStatistic(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                                        Integer limit) {
+
+        validateGetFields(start, end);
+        validateLimit(limit);
+
+        return statsResultCache.get(start, end, uris, unique, exact, limit,
+                (from, to) -> loadStatistic(from, to, uris, unique, exact, limit));
+    }
+
+    public List<LiveStatistic> getLiveStatistic(List<String> uris, Integer limit) {
+        validateLimit(limit);
+        return liveHitCounters.getStatistic(uris, limit);
+    }
+
+    public Trending getTrending(Integer limit) {
+        validateLimit(limit);
+        return trendingTracker.getTrending(limit);
+    }
 
+    public List<LatencyStatistic> getLatency(LocalDateTime start, LocalDateTime end, List<String> routes, Integer limit) {
         validateGetFields(start, end);
+        validateLimit(limit);
+        return latencyTracker.getLatency(start, StatsQueryPlanner.exclusiveEnd(end), routes, limit == null ? 10 : limit);
+    }
 
-        List<Statistic> endpointHist = new ArrayList<>();
+    public List<EntityScore> getScores(String template, List<Long> ids, Integer limit) {
+        validateLimit(limit);
+        if (template == null) {
+            log.warn("Не указан шаблон адреса");
+            throw new ValidationException("Не указан шаблон адреса");
+        }
+        UriTemplate uriTemplate = uriTemplateRegistry.find(template).orElseThrow(() -> {
+            log.warn("Неизвестный шаблон адреса: {}", template);
+            return new ValidationException("Неизвестный шаблон адреса: " + template);
+        });
 
-        if (!unique && (uris == null || uris.isEmpty())) {
-            endpointHist = endpointHistoryRepository.getStatisticBetweenDates(start, end);
+        if (ids != null && !ids.isEmpty()) {
+            return decayedScoreTracker.getScores(uriTemplate, new LinkedHashSet<>(ids));
         }
+        return decayedScoreTracker.getTop(uriTemplate, limit == null ? 10 : limit);
+    }
 
-        if (!unique && uris != null && !uris.isEmpty()) {
-            endpointHist = endpointHistoryRepository.getStatisticBetweenDatesAndUriIn(start, end, uris);
+    public List<Statistic> queryStatistic(StatsQueryDto query) {
+        if (query == null || query.getStart() == null || query.getEnd() == null) {
+            log.warn("Не заполнены обязательные поля");
+            throw new ValidationException("Не заполнены обязательные поля");
+        }
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = StatisticMapper.toLocalDateTime(query.getStart());
+            end = StatisticMapper.toLocalDateTime(query.getEnd());
+        } catch (DateTimeParseException e) {
+            log.warn("Некорректный формат даты: {}", e.getParsedString());
+            throw new ValidationException("Некорректный формат даты: " + e.getParsedString());
         }
+        validateGetFields(start, end);
+        validateLimit(query.getLimit());
 
-        if (unique && (uris == null || uris.isEmpty())) {
-            endpointHist = endpointHistoryRepository.getStatisticBetweenDatesGroupByIp(start, end);
+        List<String> uris = resolveUris(query);
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        return getStatistic(start, end, uris, Boolean.TRUE.equals(query.getUnique()), Boolean.TRUE.equals(query.getExact()),
+                query.getLimit());
+    }
+
+    public Map<String, Long> getViews(ViewsRequestDto request) {
+        if (request == null || request.getWindows() == null) {
+            log.warn("Не заполнены обязательные поля");
+            throw new ValidationException("Не заполнены обязательные поля");
+        }
+
+        Map<String, LocalDateTime> windows = new LinkedHashMap<>();
+        LocalDateTime end;
+        try {
+            end = request.getEnd() == null ? LocalDateTime.now() : StatisticMapper.toLocalDateTime(request.getEnd());
+            for (ViewWindowDto window : request.getWindows()) {
+                if (window == null || window.getUri() == null || window.getStart() == null) {
+                    log.warn("Не заполнены обязательные поля");
+                    throw new ValidationException("Не заполнены обязательные поля");
+                }
+                windows.merge(window.getUri(), StatisticMapper.toLocalDateTime(window.getStart()),
+                        (first, second) -> first.isBefore(second) ? first : second);
+            }
+        } catch (DateTimeParseException e) {
+            log.warn("Некорректный формат даты: {}", e.getParsedString());
+            throw new ValidationException("Некорректный формат даты: " + e.getParsedString());
+        }
+        windows.values().removeIf(start -> start.isAfter(end));
+        if (windows.isEmpty()) {
+            return Map.of();
         }
 
+        boolean unique = Boolean.TRUE.equals(request.getUnique());
+        return statsResultCache.getViews(windows, end, unique, (missing, to) -> loadViews(missing, to, unique));
+    }
+
+    private Map<String, Long> loadViews(Map<String, LocalDateTime> windows, LocalDateTime end, boolean unique) {
+        if (unique) {
+            Optional<Map<String, Long>> views = endpointVisitorsRepository.findViews(windows, end);
+            if (views.isPresent()) {
+                return views.get();
+            }
+        }
+
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(end);
+        Map<String, List<QuerySegment>> segments = new LinkedHashMap<>();
+        windows.forEach((uri, start) -> segments.put(uri,
+                unique ? statsQueryPlanner.planUnique(start, to) : statsQueryPlanner.plan(start, to)));
+        return unique ? endpointUniquesRepository.getViews(segments) : endpointHistoryRepository.getViews(segments);
+    }
+
+    private List<String> resolveUris(StatsQueryDto query) {
+        boolean filtered = false;
+        Set<String> uris = new LinkedHashSet<>();
+        if (query.getUris() != null && !query.getUris().isEmpty()) {
+            filtered = true;
+            uris.addAll(query.getUris());
+        }
+        if (query.getPrefixes() != null && !query.getPrefixes().isEmpty()) {
+            filtered = true;
+            query.getPrefixes().forEach(prefix -> uris.addAll(uriDictionary.findByPrefix(prefix)));
+        }
+        if (query.getTemplate() != null) {
+            filtered = true;
+            UriTemplate uriTemplate = uriTemplateRegistry.find(query.getTemplate()).orElseThrow(() -> {
+                log.warn("Неизвестный шаблон адреса: {}", query.getTemplate());
+                return new ValidationException("Неизвестный шаблон адреса: " + query.getTemplate());
+            });
+            uris.addAll(uriDictionary.findByTemplate(uriTemplate.getId(), query.getIds()));
+        } else if (query.getIds() != null && !query.getIds().isEmpty()) {
+            log.warn("Не указан шаблон адреса");
+            throw new ValidationException("Не указан шаблон адреса");
+        }
+        return filtered ? new ArrayList<>(uris) : null;
+    }
+
+    private List<Statistic> loadStatistic(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                                          Integer limit) {
         if (unique && uris != null && !uris.isEmpty()) {
-            endpointHist = endpointHistoryRepository.getStatisticBetweenDatesAndUriInGroupByIp(start, end, uris);
+            Optional<List<Statistic>> visitors = endpointVisitorsRepository.findUniqueVisitors(start, end, uris, limit);
+            if (visitors.isPresent()) {
+                return visitors.get();
+            }
+        }
+        if (unique && exact) {
+            if (uris == null || uris.isEmpty()) {
+                return endpointHistoryRepository.getStatisticBetweenDatesGroupByIp(start, end, limit);
+            }
+            return endpointHistoryRepository.getStatisticBetweenDatesAndUriInGroupByIp(start, end, uris, limit);
+        }
+
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(end);
+        LocalDateTime split = hotWindowHitStore.split(start, to);
+        boolean stored = start.isBefore(split);
+
+        if (!unique) {
+            Optional<Map<EndpointKey, Long>> recent = split.isBefore(to) ? hotWindowHitStore.countHits(split, to, uris) : Optional.empty();
+            if (recent.isEmpty()) {
+                return endpointHistoryRepository.getStatistic(statsQueryPlanner.plan(start, to), uris, limit);
+            }
+            Map<EndpointKey, Long> hits = new HashMap<>(recent.get());
+            if (stored) {
+                for (Statistic statistic : endpointHistoryRepository.getStatistic(statsQueryPlanner.plan(start, split), uris, null)) {
+                    hits.merge(new EndpointKey(statistic.getApp().getId(), statistic.getUri()), statistic.getHits().longValue(), Long::sum);
+                }
+            }
+            return toStatistics(hits, limit);
         }
 
-        return endpointHist;
+        Optional<Map<EndpointKey, Set<Long>>> visitors = hotWindowHitStore.collectVisitors(split, to, uris);
+        Map<EndpointKey, Long> hits = new HashMap<>();
+        if (visitors.isPresent() && !stored) {
+            visitors.get().forEach((key, ipHashes) -> hits.put(key, (long) ipHashes.size()));
+            return toStatistics(hits, limit);
+        }
+
+        loadSketches(start, visitors.isPresent() ? split : to, visitors.orElse(Map.of()), uris).forEach((key, sketch) -> hits.put(key, sketch.estimate()));
+        return toStatistics(hits, limit);
+    }
+
+    private Map<EndpointKey, HyperLogLog> loadSketches(LocalDateTime start, LocalDateTime split, Map<EndpointKey, Set<Long>> visitors,
+                                                       List<String> uris) {
+        Map<EndpointKey, HyperLogLog> sketches = start.isBefore(split)
+                ? endpointUniquesRepository.getSketches(statsQueryPlanner.planUnique(start, split), uris)
+                : new HashMap<>();
+        visitors.forEach((key, ipHashes) -> {
+            HyperLogLog sketch = sketches.computeIfAbsent(key, k -> new HyperLogLog(endpointUniquesRepository.getPrecision()));
+            ipHashes.forEach(sketch::addHash);
+        });
+        return sketches;
     }
 
-    private void validateGetFields(LocalDateTime start, LocalDateTime end) {
+    public List<TemplateStatistic> getTemplateStatistic(LocalDateTime start, LocalDateTime end, String template, List<Long> ids,
+                                                        String groupBy, Boolean unique, Integer limit) {
+
+        validateGetFields(start, end);
+        validateLimit(limit);
+        TemplateGrouping grouping = TemplateGrouping.from(groupBy).orElseThrow(() -> {
+            log.warn("Неизвестная группировка статистики: {}", groupBy);
+            return new ValidationException("Неизвестная группировка статистики: " + groupBy);
+        });
+        if (template == null && (grouping == TemplateGrouping.ENTITY || ids != null && !ids.isEmpty())) {
+            log.warn("Не указан шаблон адреса");
+            throw new ValidationException("Не указан шаблон адреса");
+        }
+        UriTemplate uriTemplate = template == null ? null : uriTemplateRegistry.find(template).orElseThrow(() -> {
+            log.warn("Неизвестный шаблон адреса: {}", template);
+            return new ValidationException("Неизвестный шаблон адреса: " + template);
+        });
+
+        List<String> uris = null;
+        if (ids != null && !ids.isEmpty()) {
+            uris = uriDictionary.findByTemplate(uriTemplate.getId(), ids);
+            if (uris.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Map<TemplateKey, Long> hits = new HashMap<>();
+        if (unique && grouping == TemplateGrouping.TEMPLATE) {
+            LocalDateTime to = StatsQueryPlanner.exclusiveEnd(end);
+            LocalDateTime split = hotWindowHitStore.split(start, to);
+            Map<TemplateKey, HyperLogLog> merged = new HashMap<>();
+            Optional<Map<EndpointKey, Set<Long>>> visitors = hotWindowHitStore.collectVisitors(split, to, uris);
+            loadSketches(start, visitors.isPresent() ? split : to, visitors.orElse(Map.of()), uris).forEach((key, sketch) ->
+                    templateKey(key.getAppId(), key.getUri(), uriTemplate, grouping)
+                            .ifPresent(templateKey -> merged.merge(templateKey, sketch, HyperLogLog::merge)));
+            merged.forEach((key, sketch) -> hits.put(key, sketch.estimate()));
+        } else {
+            for (Statistic statistic : getStatistic(start, end, uris, unique, false, null)) {
+                templateKey(statistic.getApp().getId(), statistic.getUri(), uriTemplate, grouping)
+                        .ifPresent(key -> hits.merge(key, statistic.getHits().longValue(), Long::sum));
+            }
+        }
+
+        List<Map.Entry<TemplateKey, Long>> ordered;
+        if (limit == null) {
+            ordered = new ArrayList<>(hits.entrySet());
+            ordered.sort(Map.Entry.<TemplateKey, Long>comparingByValue().reversed());
+        } else {
+            TopN<Map.Entry<TemplateKey, Long>> top = new TopN<>(limit, Map.Entry.comparingByValue());
+            hits.entrySet().forEach(top::offer);
+            ordered = top.toList();
+        }
+
+        List<TemplateStatistic> statistics = new ArrayList<>(ordered.size());
+        for (Map.Entry<TemplateKey, Long> entry : ordered) {
+            TemplateKey key = entry.getKey();
+            appDictionary.getById(key.appId()).ifPresent(app -> statistics.add(
+                    new TemplateStatistic(app, key.template(), key.entityId(), entry.getValue())));
+        }
+        return statistics;
+    }
+
+    private Optional<TemplateKey> templateKey(Integer appId, String uri, UriTemplate uriTemplate, TemplateGrouping grouping) {
+        return uriTemplateRegistry.match(uri)
+                .filter(match -> uriTemplate == null || match.template().getId().equals(uriTemplate.getId()))
+                .map(match -> new TemplateKey(appId, match.template().getTemplate(),
+                        grouping == TemplateGrouping.ENTITY ? match.entityId() : null));
+    }
+
+    @Transactional(readOnly = true)
+    public void streamStatistic(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact,
+                                Integer limit, Consumer<Statistic> consumer) {
+
+        validateGetFields(start, end);
+        validateLimit(limit);
+
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(end);
+        if (!unique) {
+            endpointHistoryRepository.streamStatistic(statsQueryPlanner.plan(start, to), uris, limit, consumer);
+        } else if (!exact) {
+            endpointUniquesRepository.streamStatistic(statsQueryPlanner.planUnique(start, to), uris, limit, consumer);
+        } else {
+            endpointHistoryRepository.streamStatisticGroupByIp(start, end, uris, limit, consumer);
+        }
+    }
+
+    public List<TimeSeriesPoint> getTimeSeries(LocalDateTime start, LocalDateTime end, List<String> uris, String step, Boolean unique) {
+
+        validateGetFields(start, end);
+        Granularity granularity = Granularity.fromStep(step).orElseThrow(() -> {
+            log.warn("Неизвестный шаг временного ряда: {}", step);
+            return new ValidationException("Неизвестный шаг временного ряда: " + step);
+        });
+
+        LocalDateTime first = granularity.floor(start);
+        LocalDateTime last = granularity.floor(end);
+        long buckets = granularity.getUnit().between(first, last) + 1;
+        if (buckets > MAX_SERIES_POINTS) {
+            log.warn("Слишком много интервалов во временном ряду: {}", buckets);
+            throw new ValidationException("Слишком много интервалов во временном ряду: " + buckets);
+        }
+
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(end);
+        List<TimeSeriesPoint> points = unique
+                ? endpointUniquesRepository.getTimeSeries(statsQueryPlanner.planUniqueSeries(start, to, granularity), uris, granularity)
+                : endpointHistoryRepository.getTimeSeries(statsQueryPlanner.planSeries(start, to, granularity), uris, granularity);
+
+        Map<LocalDateTime, Long> hits = new HashMap<>(points.size());
+        points.forEach(point -> hits.put(point.getBucket(), point.getHits()));
+        List<TimeSeriesPoint> series = new ArrayList<>((int) buckets);
+        for (LocalDateTime bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, granularity.getUnit())) {
+            series.add(new TimeSeriesPoint(bucket, hits.getOrDefault(bucket, 0L)));
+        }
+        return series;
+    }
+
+    public void validateLimit(Integer limit) {
+        if (limit != null && limit <= 0) {
+            log.warn("Параметр limit должен быть положительным: {}", limit);
+            throw new ValidationException("Параметр limit должен быть положительным");
+        }
+    }
+
+    public void validateGetFields(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null) {
             log.warn("Не заполнены обязательные поля");
             throw new ValidationException("Не заполнены обязательные поля");
@@ -83,4 +538,26 @@ public class StatsService {
             throw new ValidationException("Дата и время конца диапозона (end) не может превышать значение начала диапазона (start)");
         }
     }
+
+    private List<Statistic> toStatistics(Map<EndpointKey, Long> hits, Integer limit) {
+        List<Map.Entry<EndpointKey, Long>> ordered;
+        if (limit == null) {
+            ordered = new ArrayList<>(hits.entrySet());
+            ordered.sort(Map.Entry.<EndpointKey, Long>comparingByValue().reversed());
+        } else {
+            TopN<Map.Entry<EndpointKey, Long>> top = new TopN<>(limit, Map.Entry.comparingByValue());
+            hits.entrySet().forEach(top::offer);
+            ordered = top.toList();
+        }
+
+        List<Statistic> statistics = new ArrayList<>(ordered.size());
+        for (Map.Entry<EndpointKey, Long> entry : ordered) {
+            appDictionary.getById(entry.getKey().getAppId())
+                    .ifPresent(app -> statistics.add(new Statistic(app, entry.getKey().getUri(), entry.getValue().intValue())));
+        }
+        return statistics;
+    }
+
+    private record TemplateKey(Integer appId, String template, Long entityId) {
+    }
 }
@@ -0,0 +1,162 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.aggregation.CountMinSketch;
+import ru.practicum.aggregation.HyperLogLog;
+import ru.practicum.aggregation.SpaceSaving;
+import ru.practicum.aggregation.TopN;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EndpointKey;
+import ru.practicum.model.Trending;
+import ru.practicum.model.TrendingItem;
+import ru.practicum.storage.AppDictionary;
+import ru.practicum.storage.HitListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class TrendingTracker implements HitListener {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final AppDictionary appDictionary;
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final Shard[] shards;
+
+    public TrendingTracker(AppDictionary appDictionary,
+                           @Value("${stats.trending.enabled:true}") boolean enabled,
+                           @Value("${stats.trending.window-seconds:60}") long windowSeconds,
+                           @Value("${stats.trending.capacity:100}") int capacity,
+                           @Value("${stats.trending.sketch-width:2048}") int sketchWidth,
+                           @Value("${stats.trending.sketch-depth:5}") int sketchDepth,
+                           @Value("${stats.trending.shards:8}") int shards) {
+        this.appDictionary = appDictionary;
+        this.enabled = enabled;
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.shards = new Shard[Math.max(1, shards)];
+        long index = currentIndex();
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(new Window(new CountMinSketch(sketchWidth, sketchDepth), new SpaceSaving<>(capacity)),
+                    new Window(new CountMinSketch(sketchWidth, sketchDepth), new SpaceSaving<>(capacity)), index);
+        }
+    }
+
+    @Override
+    public void onHits(List<EndpointHistory> hits) {
+        if (!enabled) {
+            return;
+        }
+        long index = currentIndex();
+        for (EndpointHistory hit : hits) {
+            EndpointKey key = new EndpointKey(hit.getApp().getId(), hit.getUri());
+            long hash = hash(key);
+            Shard shard = shard(hash);
+            synchronized (shard) {
+                shard.rotate(index);
+                long upperBound = shard.current.sketch().add(hash, hit.getRepeatCount());
+                shard.current.top().offer(key, hit.getRepeatCount(), upperBound);
+            }
+        }
+    }
+
+    public Trending getTrending(int limit) {
+        long index = currentIndex();
+        Map<EndpointKey, long[]> bounds = new HashMap<>();
+        long total = 0;
+        long errorBound = 0;
+        double confidence = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.rotate(index);
+                Set<EndpointKey> keys = new LinkedHashSet<>();
+                shard.current.top().items().forEach(item -> keys.add(item.key()));
+                shard.previous.top().items().forEach(item -> keys.add(item.key()));
+                for (EndpointKey key : keys) {
+                    long hash = hash(key);
+                    long[] keyBounds = new long[2];
+                    addBounds(shard.current, key, hash, keyBounds);
+                    addBounds(shard.previous, key, hash, keyBounds);
+                    bounds.put(key, keyBounds);
+                }
+                long shardTotal = shard.current.sketch().getTotal() + shard.previous.sketch().getTotal();
+                total += shardTotal;
+                errorBound = Math.max(errorBound, (long) Math.ceil(shard.current.sketch().getEpsilon() * shardTotal));
+                confidence = shard.current.sketch().getConfidence();
+            }
+        }
+
+        long grandTotal = total;
+        TopN<TrendingItem> top = new TopN<>(limit, Comparator.comparing(TrendingItem::getHits));
+        bounds.forEach((key, keyBounds) -> appDictionary.getById(key.getAppId())
+                .ifPresent(app -> top.offer(new TrendingItem(app, key.getUri(), keyBounds[0], keyBounds[1],
+                        grandTotal == 0 ? 0.0 : (double) keyBounds[0] / grandTotal))));
+
+        return new Trending(total, errorBound, confidence, top.toList());
+    }
+
+    private void addBounds(Window window, EndpointKey key, long hash, long[] bounds) {
+        SpaceSaving.Item<EndpointKey> item = window.top().get(key);
+        if (item != null) {
+            bounds[0] += item.count();
+            bounds[1] += item.count() - item.error();
+        } else {
+            bounds[0] += window.sketch().estimate(hash);
+        }
+    }
+
+    private long currentIndex() {
+        return System.currentTimeMillis() / 1000 / windowSeconds;
+    }
+
+    // Rehashed so the shard choice does not constrain the bits CountMinSketch uses for its row indexes.
+    private Shard shard(long hash) {
+        long mixed = (hash ^ hash >>> 30) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ mixed >>> 27) * 0x94D049BB133111EBL;
+        return shards[(int) Long.remainderUnsigned(mixed ^ mixed >>> 31, shards.length)];
+    }
+
+    private long hash(EndpointKey key) {
+        return HyperLogLog.hash(key.getUri()) ^ key.getAppId() * GOLDEN_GAMMA;
+    }
+
+    private static final class Shard {
+        private Window current;
+        private Window previous;
+        private long currentIndex;
+
+        private Shard(Window current, Window previous, long currentIndex) {
+            this.current = current;
+            this.previous = previous;
+            this.currentIndex = currentIndex;
+        }
+
+        private void rotate(long index) {
+            if (index <= currentIndex) {
+                return;
+            }
+
+            Window expired = previous;
+            expired.clear();
+            if (index == currentIndex + 1) {
+                previous = current;
+                current = expired;
+            } else {
+                current.clear();
+            }
+            currentIndex = index;
+        }
+    }
+
+    private record Window(CountMinSketch sketch, SpaceSaving<EndpointKey> top) {
+        private void clear() {
+            sketch.clear();
+            top.clear();
+        }
+    }
+}
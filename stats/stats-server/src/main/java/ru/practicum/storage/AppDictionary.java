@@ -0,0 +1,63 @@
+package ru.practicum.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.App;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppDictionary {
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ConcurrentMap<String, App> appsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, App> appsById = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        namedParameterJdbcTemplate.query("select id, name from apps", rs -> {
+            register(new App(rs.getInt("id"), rs.getString("name")));
+        });
+        log.info("Загружено {} приложений", appsById.size());
+    }
+
+    public App getByName(String name) {
+        return appsByName.computeIfAbsent(name, this::upsert);
+    }
+
+    public Optional<App> getById(Integer id) {
+        App app = appsById.get(id);
+        if (app != null) {
+            return Optional.of(app);
+        }
+
+        List<App> apps = namedParameterJdbcTemplate.query("select id, name from apps where id = (:id)",
+                new MapSqlParameterSource("id", id),
+                (rs, rowNum) -> new App(rs.getInt("id"), rs.getString("name")));
+        apps.forEach(this::register);
+        return apps.stream().findFirst();
+    }
+
+    private App upsert(String name) {
+        Integer id = namedParameterJdbcTemplate.queryForObject("insert into apps (name) values (:name) "
+                        + "on conflict (name) do update set name = excluded.name "
+                        + "returning id",
+                new MapSqlParameterSource("name", name), Integer.class);
+        App app = new App(id, name);
+        appsById.put(id, app);
+        return app;
+    }
+
+    private void register(App app) {
+        appsByName.putIfAbsent(app.getName(), app);
+        appsById.putIfAbsent(app.getId(), app);
+    }
+}
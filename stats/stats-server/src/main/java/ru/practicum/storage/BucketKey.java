@@ -0,0 +1,10 @@
+package ru.practicum.storage;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+record BucketKey(LocalDateTime bucket, Integer appId, String uri) {
+    static final Comparator<BucketKey> ORDER = Comparator.comparing(BucketKey::bucket)
+            .thenComparing(BucketKey::appId)
+            .thenComparing(BucketKey::uri);
+}
@@ -1,16 +1,27 @@
 package ru.practicum.storage;
 
+import ru.practicum.model.Granularity;
+import ru.practicum.model.QuerySegment;
 import ru.practicum.model.Statistic;
+import ru.practicum.model.TimeSeriesPoint;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface CustomEndpointHistoryRepository {
-    List<Statistic> getStatisticBetweenDates(LocalDateTime start, LocalDateTime end);
+    List<Statistic> getStatistic(List<QuerySegment> segments, List<String> uris, Integer limit);
 
-    List<Statistic> getStatisticBetweenDatesAndUriIn(LocalDateTime start, LocalDateTime end, List<String> uris);
+    void streamStatistic(List<QuerySegment> segments, List<String> uris, Integer limit, Consumer<Statistic> consumer);
 
-    List<Statistic> getStatisticBetweenDatesGroupByIp(LocalDateTime start, LocalDateTime end);
+    Map<String, Long> getViews(Map<String, List<QuerySegment>> windows);
 
-    List<Statistic> getStatisticBetweenDatesAndUriInGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris);
+    List<TimeSeriesPoint> getTimeSeries(List<QuerySegment> segments, List<String> uris, Granularity step);
+
+    List<Statistic> getStatisticBetweenDatesGroupByIp(LocalDateTime start, LocalDateTime end, Integer limit);
+
+    List<Statistic> getStatisticBetweenDatesAndUriInGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit);
+
+    void streamStatisticGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit, Consumer<Statistic> consumer);
 }
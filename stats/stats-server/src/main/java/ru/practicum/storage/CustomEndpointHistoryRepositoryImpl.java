@@ -1,119 +1,215 @@
 package ru.practicum.storage;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.practicum.model.App;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.QuerySegment;
 import ru.practicum.model.Statistic;
+import ru.practicum.model.TimeSeriesPoint;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
 public class CustomEndpointHistoryRepositoryImpl implements CustomEndpointHistoryRepository {
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
-    private final AppRepository appRepository;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final AppDictionary appDictionary;
+
+    public CustomEndpointHistoryRepositoryImpl(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                               AppDictionary appDictionary,
+                                               @Value("${stats.query.fetch-size:1000}") int fetchSize) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.appDictionary = appDictionary;
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
 
     @Override
-    public List<Statistic> getStatisticBetweenDates(LocalDateTime start, LocalDateTime end) {
+    public List<Statistic> getStatistic(List<QuerySegment> segments, List<String> uris, Integer limit) {
+        List<Statistic> endpointHist = new ArrayList<>();
+        streamStatistic(segments, uris, limit, endpointHist::add);
+        return endpointHist;
+    }
+
+    @Override
+    public void streamStatistic(List<QuerySegment> segments, List<String> uris, Integer limit, Consumer<Statistic> consumer) {
 
         HashMap<String, Object> params = new HashMap<>();
-        params.put("start", start);
-        params.put("end", end);
+        params.put("uri", uris == null ? null : uris.toArray(new String[0]));
+        params.put("limit", limit);
+
+        StringJoiner union = new StringJoiner(" union all ");
+        for (int i = 0; i < segments.size(); i++) {
+            QuerySegment segment = segments.get(i);
+            params.put("from" + i, segment.getFrom());
+            params.put("to" + i, segment.getTo());
+            union.add(segment.isRaw() ? rawSegmentSql(i, uris) : rollupSegmentSql(segment.getGranularity(), i, uris));
+        }
 
         SqlParameterSource parameters = new MapSqlParameterSource(params);
-        String sql = "select distinct app_id, uri, count(id) as hits "
-                + "from endpoint_hist "
-                + "where request_timestamp between (:start) and (:end) "
+        String sql = "select app_id, uri, cast(sum(hits) as bigint) as hits from ( "
+                + union
+                + ") as segments "
                 + "group by app_id, uri "
-                + "order by hits desc";
-        SqlRowSet endpointHistRows = namedParameterJdbcTemplate.queryForRowSet(sql, parameters);
+                + "order by hits desc "
+                + limitClause(limit);
 
-        return fillStatistic(endpointHistRows);
+        stream(sql, parameters, consumer);
     }
 
     @Override
-    public List<Statistic> getStatisticBetweenDatesAndUriIn(LocalDateTime start, LocalDateTime end, List<String> uris) {
+    public Map<String, Long> getViews(Map<String, List<QuerySegment>> windows) {
+        MapSqlParameterSource params = ViewSegments.of(windows).toParameters();
+
+        StringJoiner union = new StringJoiner(" union all ");
+        for (Granularity granularity : Granularity.values()) {
+            union.add("select sum(r.hits) as hits "
+                    + "from " + granularity.getTable() + " r "
+                    + "where w.level = '" + granularity.getTruncField() + "' and r.uri = w.uri "
+                    + "and r.bucket >= w.seg_from and r.bucket < w.seg_to");
+        }
+        union.add("select sum(h.repeat_count) as hits "
+                + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                + "where w.level = '" + ViewSegments.RAW + "' and u.uri = w.uri and h.app_id is not null "
+                + "and h.request_timestamp >= w.seg_from and h.request_timestamp < w.seg_to");
+
+        String sql = "select w.uri, cast(coalesce(sum(s.hits), 0) as bigint) as hits "
+                + "from " + ViewSegments.SOURCE + " "
+                + "cross join lateral ( "
+                + union
+                + ") as s "
+                + "group by w.uri";
+
+        Map<String, Long> views = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            views.put(rs.getString("uri"), rs.getLong("hits"));
+        });
+        return views;
+    }
+
+    @Override
+    public List<TimeSeriesPoint> getTimeSeries(List<QuerySegment> segments, List<String> uris, Granularity step) {
 
         HashMap<String, Object> params = new HashMap<>();
-        params.put("start", start);
-        params.put("end", end);
-        params.put("uri", uris);
+        params.put("uri", uris == null ? null : uris.toArray(new String[0]));
+
+        StringJoiner union = new StringJoiner(" union all ");
+        for (int i = 0; i < segments.size(); i++) {
+            QuerySegment segment = segments.get(i);
+            params.put("from" + i, segment.getFrom());
+            params.put("to" + i, segment.getTo());
+            if (segment.isRaw()) {
+                union.add("select date_trunc('" + step.getTruncField() + "', h.request_timestamp) as bucket, sum(h.repeat_count) as hits "
+                        + "from endpoint_hist h "
+                        + "where h.request_timestamp >= (:from" + i + ") and h.request_timestamp < (:to" + i + ") "
+                        + uriIdFilter(uris)
+                        + "group by 1");
+            } else {
+                union.add("select date_trunc('" + step.getTruncField() + "', bucket) as bucket, hits "
+                        + "from " + segment.getGranularity().getTable() + " "
+                        + "where bucket >= (:from" + i + ") and bucket < (:to" + i + ") "
+                        + uriFilter(uris));
+            }
+        }
 
-        SqlParameterSource parameters = new MapSqlParameterSource(params);
-        String sql = "select distinct app_id, uri, count(id) as hits "
-                + "from endpoint_hist "
-                + "where request_timestamp between (:start) and (:end) and uri in (:uri) "
-                + "group by app_id, uri "
-                + "order by hits desc";
-        SqlRowSet endpointHistRows = namedParameterJdbcTemplate.queryForRowSet(sql, parameters);
+        String sql = "select bucket, cast(sum(hits) as bigint) as hits from ( "
+                + union
+                + ") as segments "
+                + "group by bucket "
+                + "order by bucket";
 
-        return fillStatistic(endpointHistRows);
+        return namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource(params),
+                (rs, rowNum) -> new TimeSeriesPoint(rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits")));
     }
 
     @Override
-    public List<Statistic> getStatisticBetweenDatesGroupByIp(LocalDateTime start, LocalDateTime end) {
+    public List<Statistic> getStatisticBetweenDatesGroupByIp(LocalDateTime start, LocalDateTime end, Integer limit) {
+        return getStatisticGroupByIp(start, end, null, limit);
+    }
+
+    @Override
+    public List<Statistic> getStatisticBetweenDatesAndUriInGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        return getStatisticGroupByIp(start, end, uris, limit);
+    }
+
+    @Override
+    public void streamStatisticGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit, Consumer<Statistic> consumer) {
 
         HashMap<String, Object> params = new HashMap<>();
         params.put("start", start);
         params.put("end", end);
+        params.put("uri", uris == null ? null : uris.toArray(new String[0]));
+        params.put("limit", limit);
 
         SqlParameterSource parameters = new MapSqlParameterSource(params);
-        String sql = "select app_id, uri, count(uri) as hits from ( "
-                + "select distinct app_id, uri, ip "
+        String sql = "select v.app_id, u.uri, count(*) as hits from ( "
+                + "select distinct app_id, uri_id, ip "
                 + "from endpoint_hist "
-                + "where request_timestamp between (:start) and (:end)) "
-                + "group by app_id, uri "
-                + "order by hits desc";
-        SqlRowSet endpointHistRows = namedParameterJdbcTemplate.queryForRowSet(sql, parameters);
+                + "where request_timestamp between (:start) and (:end) "
+                + uriIdFilter(uris)
+                + ") as v "
+                + "join uris u on u.id = v.uri_id "
+                + "group by v.app_id, u.id "
+                + "order by hits desc "
+                + limitClause(limit);
+
+        stream(sql, parameters, consumer);
+    }
 
-        return fillStatistic(endpointHistRows);
+    private List<Statistic> getStatisticGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        List<Statistic> endpointHist = new ArrayList<>();
+        streamStatisticGroupByIp(start, end, uris, limit, endpointHist::add);
+        return endpointHist;
     }
 
-    @Override
-    public List<Statistic> getStatisticBetweenDatesAndUriInGroupByIp(LocalDateTime start, LocalDateTime end, List<String> uris) {
+    private String rawSegmentSql(int i, List<String> uris) {
+        return "select h.app_id, u.uri, sum(h.repeat_count) as hits "
+                + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                + "where h.request_timestamp >= (:from" + i + ") and h.request_timestamp < (:to" + i + ") "
+                + uriIdFilter(uris)
+                + "group by h.app_id, u.id";
+    }
 
-        HashMap<String, Object> params = new HashMap<>();
-        params.put("start", start);
-        params.put("end", end);
-        params.put("uri", uris);
+    private String rollupSegmentSql(Granularity granularity, int i, List<String> uris) {
+        return "select app_id, uri, hits "
+                + "from " + granularity.getTable() + " "
+                + "where bucket >= (:from" + i + ") and bucket < (:to" + i + ") "
+                + uriFilter(uris);
+    }
 
-        SqlParameterSource parameters = new MapSqlParameterSource(params);
-        String sql = "select app_id, uri, count(uri) as hits from ( "
-                + "select distinct app_id, uri, ip "
-                + "from endpoint_hist "
-                + "where request_timestamp between (:start) and (:end) and uri in (:uri)) "
-                + "group by app_id, uri "
-                + "order by hits desc";
-        SqlRowSet endpointHistRows = namedParameterJdbcTemplate.queryForRowSet(sql, parameters);
+    private String uriFilter(List<String> uris) {
+        return uris == null || uris.isEmpty() ? "" : "and uri = any(:uri) ";
+    }
 
-        return fillStatistic(endpointHistRows);
+    private String limitClause(Integer limit) {
+        return limit == null ? "" : "limit (:limit)";
     }
 
-    private List<Statistic> fillStatistic(SqlRowSet endpointHistRows) {
-        List<Statistic> endpointHist = new ArrayList<>();
+    private String uriIdFilter(List<String> uris) {
+        return uris == null || uris.isEmpty() ? "" : "and uri_id in (select id from uris where uri = any(:uri)) ";
+    }
 
-        if (endpointHistRows.first()) {
-            Optional<App> app = appRepository.findById(endpointHistRows.getInt("app_id"));
+    private void stream(String sql, SqlParameterSource parameters, Consumer<Statistic> consumer) {
+        streamingJdbcTemplate.query(sql, parameters, rs -> {
+            Optional<App> app = appDictionary.getById(rs.getInt("app_id"));
             if (app.isPresent()) {
-                endpointHist.add(new Statistic(app.get(), endpointHistRows.getString("uri"), endpointHistRows.getInt("hits")));
-            }
-            while (endpointHistRows.next()) {
-                app = appRepository.findById(endpointHistRows.getInt("app_id"));
-                if (app.isPresent()) {
-                    endpointHist.add(new Statistic(app.get(), endpointHistRows.getString("uri"), endpointHistRows.getInt("hits")));
-                }
+                consumer.accept(new Statistic(app.get(), rs.getString("uri"), rs.getInt("hits")));
             }
-        }
-
-        return endpointHist;
+        });
     }
 }
@@ -0,0 +1,206 @@
+package ru.practicum.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.EndpointHistory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class EndpointHistoryBatchWriter {
+    private static final String INSERT_PREFIX = "insert into endpoint_hist (app_id, uri_id, ip, request_timestamp, repeat_count) values ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, cast(? as inet), ?, ?)";
+    private static final int COLUMNS = 5;
+    private static final int MAX_STATEMENT_PARAMETERS = 65535;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EndpointHitsRollupRepository rollupRepository;
+    private final EndpointUniquesRepository uniquesRepository;
+    private final EndpointVisitorsRepository visitorsRepository;
+    private final EndpointHistoryPartitionManager partitionManager;
+    private final List<HitListener> hitListeners;
+    private final int batchSize;
+    private final boolean buffered;
+    private final int maxBuffered;
+    private final List<EndpointHistory> buffer = new ArrayList<>();
+    private volatile boolean failing;
+
+    public EndpointHistoryBatchWriter(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      EndpointHitsRollupRepository rollupRepository,
+                                      EndpointUniquesRepository uniquesRepository,
+                                      EndpointVisitorsRepository visitorsRepository,
+                                      EndpointHistoryPartitionManager partitionManager,
+                                      List<HitListener> hitListeners,
+                                      @Value("${stats.ingest.batch-size:500}") int batchSize,
+                                      @Value("${stats.ingest.buffered:true}") boolean buffered,
+                                      @Value("${stats.ingest.max-buffered:100000}") int maxBuffered) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rollupRepository = rollupRepository;
+        this.uniquesRepository = uniquesRepository;
+        this.visitorsRepository = visitorsRepository;
+        this.partitionManager = partitionManager;
+        this.hitListeners = hitListeners;
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_STATEMENT_PARAMETERS / COLUMNS));
+        this.buffered = buffered;
+        this.maxBuffered = Math.max(this.batchSize, maxBuffered);
+    }
+
+    public void write(List<EndpointHistory> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        if (!buffered) {
+            insert(hits);
+            return;
+        }
+
+        List<EndpointHistory> ready = null;
+        synchronized (buffer) {
+            buffer.addAll(hits);
+            dropOverflow();
+            if (buffer.size() >= batchSize && !failing) {
+                ready = drainBuffer();
+            }
+        }
+        if (ready != null) {
+            insertBuffered(ready);
+        }
+    }
+
+    public void writeNow(List<EndpointHistory> hits, Runnable inTransaction) {
+        if (hits.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> inTransaction.run());
+            return;
+        }
+        insert(hits, inTransaction);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.ingest.flush-interval-ms:1000}")
+    public void flush() {
+        if (!buffered) {
+            return;
+        }
+
+        List<EndpointHistory> ready;
+        synchronized (buffer) {
+            ready = drainBuffer();
+        }
+        if (!ready.isEmpty()) {
+            insertBuffered(ready);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        synchronized (buffer) {
+            if (!buffer.isEmpty()) {
+                log.error("При остановке не сохранено {} запросов из буфера записи", buffer.size());
+            }
+        }
+    }
+
+    private List<EndpointHistory> drainBuffer() {
+        List<EndpointHistory> ready = new ArrayList<>(buffer);
+        buffer.clear();
+        return ready;
+    }
+
+    private void insertBuffered(List<EndpointHistory> hits) {
+        List<EndpointHistory> failed = new ArrayList<>();
+        for (int from = 0; from < hits.size(); from += batchSize) {
+            List<EndpointHistory> chunk = hits.subList(from, Math.min(from + batchSize, hits.size()));
+            try {
+                insert(chunk);
+            } catch (DataIntegrityViolationException e) {
+                log.error("Пакет из {} запросов отброшен: повторная запись не поможет", chunk.size());
+            } catch (RuntimeException e) {
+                failed.addAll(chunk);
+            }
+        }
+        failing = !failed.isEmpty();
+        if (failing) {
+            requeue(failed);
+        }
+    }
+
+    private void requeue(List<EndpointHistory> hits) {
+        synchronized (buffer) {
+            buffer.addAll(0, hits);
+            dropOverflow();
+            log.warn("Пакет из {} запросов возвращен в буфер, в очереди {}", hits.size(), buffer.size());
+        }
+    }
+
+    private void dropOverflow() {
+        int overflow = buffer.size() - maxBuffered;
+        if (overflow > 0) {
+            buffer.subList(0, overflow).clear();
+            log.error("Буфер записи переполнен, отброшено {} самых старых запросов", overflow);
+        }
+    }
+
+    private void insert(List<EndpointHistory> hits) {
+        insert(hits, null);
+    }
+
+    private void insert(List<EndpointHistory> hits, Runnable inTransaction) {
+        List<LocalDateTime> timestamps = new ArrayList<>(hits.size());
+        for (EndpointHistory hit : hits) {
+            timestamps.add(hit.getRequestTimestamp());
+        }
+        partitionManager.ensurePartitions(timestamps);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < hits.size(); from += batchSize) {
+                    insertChunk(hits.subList(from, Math.min(from + batchSize, hits.size())));
+                }
+                rollupRepository.increment(hits);
+                uniquesRepository.add(hits);
+                visitorsRepository.add(hits);
+                if (inTransaction != null) {
+                    inTransaction.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить пакет из {} запросов", hits.size(), e);
+            throw e;
+        }
+        log.debug("Сохранен пакет из {} запросов", hits.size());
+
+        for (HitListener hitListener : hitListeners) {
+            hitListener.onHits(hits);
+        }
+    }
+
+    private void insertChunk(List<EndpointHistory> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        Object[] args = new Object[chunk.size() * COLUMNS];
+        int i = 0;
+        for (EndpointHistory hit : chunk) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = hit.getApp().getId();
+            args[i++] = hit.getUriId();
+            args[i++] = hit.getIp();
+            args[i++] = hit.getRequestTimestamp();
+            args[i++] = hit.getRepeatCount();
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+}
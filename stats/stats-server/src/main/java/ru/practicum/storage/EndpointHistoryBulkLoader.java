@@ -0,0 +1,59 @@
+package ru.practicum.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHistory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+public class EndpointHistoryBulkLoader {
+    private static final String TABLE = "endpoint_hist";
+    private static final String COLUMNS = "app_id, uri_id, ip, request_timestamp, repeat_count";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public String createStaging() {
+        String staging = TABLE + "_import_" + UUID.randomUUID().toString().replace("-", "");
+        jdbcTemplate.execute("create unlogged table " + staging + " (app_id integer not null, uri_id integer not null, "
+                + "ip inet not null, request_timestamp timestamp not null, repeat_count integer not null)");
+        return staging;
+    }
+
+    public long publish(String staging) {
+        return jdbcTemplate.update("insert into " + TABLE + " (" + COLUMNS + ") select " + COLUMNS + " from " + staging);
+    }
+
+    public void dropStaging(String staging) {
+        jdbcTemplate.execute("drop table if exists " + staging);
+    }
+
+    public long copy(String table, List<EndpointHistory> hits) {
+        StringBuilder rows = new StringBuilder(hits.size() * 64);
+        for (EndpointHistory hit : hits) {
+            rows.append(hit.getApp().getId()).append(',')
+                    .append(hit.getUriId()).append(',')
+                    .append(hit.getIp()).append(',')
+                    .append(hit.getRequestTimestamp()).append(',')
+                    .append(hit.getRepeatCount()).append('\n');
+        }
+
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn("copy " + table + " (" + COLUMNS + ") from stdin (format csv)",
+                        new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+}
@@ -0,0 +1,212 @@
+package ru.practicum.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.PartitionInterval;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Component
+public class EndpointHistoryPartitionManager {
+    private static final String TABLE = "endpoint_hist";
+    private static final String LEGACY_MIGRATION = "db/migration/endpoint_hist_partitioning.sql";
+    private static final String URI_DICTIONARY_MIGRATION = "db/migration/endpoint_hist_uri_dictionary.sql";
+    private static final String REPEAT_COUNT_MIGRATION = "db/migration/endpoint_hist_repeat_count.sql";
+    private static final String INDEXES = "db/migration/endpoint_hist_indexes.sql";
+    private static final String ROLLUP_BACKFILL = "db/migration/endpoint_hits_backfill.sql";
+    private static final String VISITORS_BACKFILL = "db/migration/endpoint_visitors_backfill.sql";
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter NAME_WITH_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate savepointTemplate;
+    private final SchemaMigrator schemaMigrator;
+    private final PartitionInterval interval;
+    private final int premakeDays;
+    private final boolean detachOnly;
+    private final int maxAgeDays;
+    private final int maxFutureMinutes;
+    private final NavigableMap<LocalDateTime, Partition> partitions = new TreeMap<>();
+
+    public EndpointHistoryPartitionManager(JdbcTemplate jdbcTemplate,
+                                           TransactionTemplate transactionTemplate,
+                                           SchemaMigrator schemaMigrator,
+                                           @Value("${stats.partition.interval:DAY}") PartitionInterval interval,
+                                           @Value("${stats.partition.premake-days:7}") int premakeDays,
+                                           @Value("${stats.partition.detach-only:false}") boolean detachOnly,
+                                           @Value("${stats.partition.max-age-days:3650}") int maxAgeDays,
+                                           @Value("${stats.partition.max-future-minutes:60}") int maxFutureMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.savepointTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.schemaMigrator = schemaMigrator;
+        this.interval = interval;
+        this.premakeDays = premakeDays;
+        this.detachOnly = detachOnly;
+        this.maxAgeDays = maxAgeDays;
+        this.maxFutureMinutes = maxFutureMinutes;
+    }
+
+    @PostConstruct
+    public void init() {
+        if ("r".equals(schemaMigrator.getRelationKind(TABLE))) {
+            migrateLegacyTable();
+        }
+        if (schemaMigrator.hasColumn(TABLE, "uri")) {
+            transactionTemplate.executeWithoutResult(status -> schemaMigrator.execute(URI_DICTIONARY_MIGRATION));
+            log.info("Адреса в таблице {} переведены на словарь uris", TABLE);
+        }
+        if (!schemaMigrator.hasColumn(TABLE, "repeat_count")) {
+            schemaMigrator.execute(REPEAT_COUNT_MIGRATION);
+        }
+        schemaMigrator.execute(INDEXES);
+        schemaMigrator.execute(ROLLUP_BACKFILL);
+        schemaMigrator.execute(VISITORS_BACKFILL);
+        createFuturePartitions();
+    }
+
+    @Scheduled(cron = "${stats.partition.cron:0 5 * * * *}")
+    public void createFuturePartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        ensurePartitions(now, now.plusDays(premakeDays));
+    }
+
+    public boolean accepts(LocalDateTime timestamp) {
+        LocalDateTime now = LocalDateTime.now();
+        return !timestamp.isBefore(now.minusDays(maxAgeDays)) && !timestamp.isAfter(now.plusMinutes(maxFutureMinutes));
+    }
+
+    public synchronized void ensurePartitions(Collection<LocalDateTime> timestamps) {
+        NavigableSet<LocalDateTime> buckets = new TreeSet<>();
+        for (LocalDateTime timestamp : timestamps) {
+            buckets.add(interval.floor(timestamp));
+        }
+        for (LocalDateTime bucket : buckets) {
+            ensurePartitions(bucket, bucket);
+        }
+    }
+
+    private synchronized void ensurePartitions(LocalDateTime from, LocalDateTime to) {
+        if (partitions.isEmpty()) {
+            loadPartitions();
+        }
+
+        LocalDateTime cursor = from;
+        while (!cursor.isAfter(to)) {
+            Map.Entry<LocalDateTime, Partition> previous = partitions.floorEntry(cursor);
+            if (previous != null && cursor.isBefore(previous.getValue().to())) {
+                cursor = previous.getValue().to();
+                continue;
+            }
+
+            LocalDateTime lower = interval.floor(cursor);
+            if (previous != null && lower.isBefore(previous.getValue().to())) {
+                lower = previous.getValue().to();
+            }
+            LocalDateTime upper = interval.next(interval.floor(cursor));
+            LocalDateTime nextStart = partitions.higherKey(cursor);
+            if (nextStart != null && nextStart.isBefore(upper)) {
+                upper = nextStart;
+            }
+
+            createPartition(lower, upper);
+            cursor = upper;
+        }
+    }
+
+    public synchronized List<String> dropPartitionsBefore(LocalDateTime cutoff) {
+        loadPartitions();
+
+        List<String> dropped = new ArrayList<>();
+        for (Partition partition : new ArrayList<>(partitions.headMap(cutoff, true).values())) {
+            if (partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("alter table " + TABLE + " detach partition " + partition.name());
+            if (!detachOnly) {
+                jdbcTemplate.execute("drop table " + partition.name());
+            }
+            partitions.remove(partition.from());
+            dropped.add(partition.name());
+        }
+        if (!dropped.isEmpty()) {
+            log.info("{} устаревшие секции {}: {}", detachOnly ? "Отсоединены" : "Удалены", TABLE, dropped);
+        }
+        return dropped;
+    }
+
+    private void createPartition(LocalDateTime from, LocalDateTime to) {
+        String name = TABLE + "_p" + from.format(from.toLocalTime().toSecondOfDay() == 0 ? NAME_FORMAT : NAME_WITH_TIME_FORMAT);
+        try {
+            savepointTemplate.executeWithoutResult(status -> jdbcTemplate.execute("create table if not exists " + name
+                    + " partition of " + TABLE
+                    + " for values from ('" + from.format(BOUND_FORMAT) + "') to ('" + to.format(BOUND_FORMAT) + "')"));
+            partitions.put(from, new Partition(name, from, to));
+            log.info("Создана секция {} [{}, {})", name, from, to);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось создать секцию {}: {}", name, e.getMessage());
+            loadPartitions();
+            if (!partitions.containsKey(from)) {
+                throw e;
+            }
+        }
+    }
+
+    private void loadPartitions() {
+        partitions.clear();
+        jdbcTemplate.query("select c.relname as name, pg_get_expr(c.relpartbound, c.oid) as bounds "
+                + "from pg_inherits i "
+                + "join pg_class c on c.oid = i.inhrelid "
+                + "join pg_class p on p.oid = i.inhparent "
+                + "where p.relname = ?", rs -> {
+                    Matcher matcher = BOUNDS.matcher(rs.getString("bounds"));
+                    if (matcher.find()) {
+                        LocalDateTime from = LocalDateTime.parse(matcher.group(1), BOUND_FORMAT);
+                        LocalDateTime to = LocalDateTime.parse(matcher.group(2), BOUND_FORMAT);
+                        partitions.put(from, new Partition(rs.getString("name"), from, to));
+                    }
+                }, TABLE);
+    }
+
+    private void migrateLegacyTable() {
+        transactionTemplate.executeWithoutResult(status -> {
+            schemaMigrator.execute(LEGACY_MIGRATION);
+
+            List<LocalDateTime> days = jdbcTemplate.query("select distinct date_trunc('day', request_timestamp) as day "
+                    + "from endpoint_hist_legacy "
+                    + "where request_timestamp is not null", (rs, rowNum) -> rs.getTimestamp("day").toLocalDateTime());
+            ensurePartitions(days);
+
+            int moved = jdbcTemplate.update("insert into endpoint_hist (app_id, uri, ip, request_timestamp) "
+                    + "select app_id, uri, ip, request_timestamp from endpoint_hist_legacy "
+                    + "where request_timestamp is not null");
+            jdbcTemplate.execute("drop table endpoint_hist_legacy");
+            log.info("Таблица {} преобразована в секционированную, перенесено {} записей", TABLE, moved);
+        });
+    }
+
+    private record Partition(String name, LocalDateTime from, LocalDateTime to) {
+    }
+}
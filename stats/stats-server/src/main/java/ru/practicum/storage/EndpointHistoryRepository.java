@@ -5,7 +5,7 @@ import ru.practicum.model.EndpointHistory;
 
 import java.util.List;
 
-public interface EndpointHistoryRepository extends JpaRepository<EndpointHistory, Integer>, CustomEndpointHistoryRepository {
+public interface EndpointHistoryRepository extends JpaRepository<EndpointHistory, Long>, CustomEndpointHistoryRepository {
 
     List<EndpointHistory> findAllByAppId(Integer appId);
 }
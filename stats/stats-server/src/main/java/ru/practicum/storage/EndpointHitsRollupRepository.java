@@ -0,0 +1,65 @@
+package ru.practicum.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Granularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@RequiredArgsConstructor
+public class EndpointHitsRollupRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void increment(List<EndpointHistory> hits) {
+        for (Granularity granularity : Granularity.values()) {
+            Map<BucketKey, Long> counts = new TreeMap<>(BucketKey.ORDER);
+            for (EndpointHistory hit : hits) {
+                BucketKey key = new BucketKey(granularity.floor(hit.getRequestTimestamp()), hit.getApp().getId(), hit.getUri());
+                counts.merge(key, (long) hit.getRepeatCount(), Long::sum);
+            }
+
+            List<Object[]> rows = new ArrayList<>(counts.size());
+            counts.forEach((key, count) -> rows.add(new Object[]{key.appId(), key.uri(), key.bucket(), count}));
+
+            String sql = "insert into " + granularity.getTable() + " (app_id, uri, bucket, hits) "
+                    + "values (?, ?, ?, ?) "
+                    + "on conflict (bucket, app_id, uri) do update "
+                    + "set hits = " + granularity.getTable() + ".hits + excluded.hits";
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    public void addFrom(String staging) {
+        for (Granularity granularity : Granularity.values()) {
+            jdbcTemplate.update("insert into " + granularity.getTable() + " (app_id, uri, bucket, hits) "
+                    + "select s.app_id, u.uri, date_trunc('" + granularity.getTruncField() + "', s.request_timestamp), sum(s.repeat_count) "
+                    + "from " + staging + " s join uris u on u.id = s.uri_id "
+                    + "group by s.app_id, u.id, date_trunc('" + granularity.getTruncField() + "', s.request_timestamp) "
+                    + "order by 3, 1, 2 "
+                    + "on conflict (bucket, app_id, uri) do update "
+                    + "set hits = " + granularity.getTable() + ".hits + excluded.hits");
+        }
+    }
+
+    public void streamEntityHits(Granularity granularity, LocalDateTime from, LocalDateTime to, EntityHitsHandler handler) {
+        jdbcTemplate.query("select u.template_id, u.entity_id, r.bucket, sum(r.hits) as hits "
+                        + "from " + granularity.getTable() + " r join uris u on u.uri = r.uri "
+                        + "where r.bucket >= ? and r.bucket < ? and u.template_id is not null "
+                        + "group by u.template_id, u.entity_id, r.bucket",
+                rs -> {
+                    handler.accept(rs.getInt("template_id"), rs.getLong("entity_id"),
+                            rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+                }, granularity.floor(from), to);
+    }
+
+    public interface EntityHitsHandler {
+        void accept(int templateId, long entityId, LocalDateTime bucket, long hits);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.aggregation.LatencySummary;
+import ru.practicum.aggregation.TDigest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+public class EndpointLatencyRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double compression;
+
+    public EndpointLatencyRepository(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${stats.latency.compression:100}") double compression) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.compression = compression;
+    }
+
+    public LatencySummary newSummary() {
+        return new LatencySummary(compression);
+    }
+
+    public void add(Map<LatencyKey, LatencySummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+
+        Map<LatencyKey, LatencySummary> sorted = new TreeMap<>(LatencyKey.ORDER);
+        sorted.putAll(summaries);
+        byte[] empty = new TDigest(compression).toBytes();
+        List<Object[]> placeholders = new ArrayList<>(sorted.size());
+        List<String> buckets = new ArrayList<>(sorted.size());
+        List<String> routes = new ArrayList<>(sorted.size());
+        for (LatencyKey key : sorted.keySet()) {
+            placeholders.add(new Object[]{key.route(), key.bucket(), empty});
+            buckets.add(key.bucket().toString());
+            routes.add(key.route());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("insert into endpoint_latency_hour (route, bucket, errors, digest) "
+                    + "values (?, ?, 0, ?) "
+                    + "on conflict (bucket, route) do nothing", placeholders);
+
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("bucket", buckets.toArray(new String[0]))
+                    .addValue("route", routes.toArray(new String[0]));
+            String sql = "select route, bucket, errors, digest "
+                    + "from endpoint_latency_hour "
+                    + "where (bucket, route) in (select * from unnest(cast(:bucket as timestamp[]), cast(:route as varchar[]))) "
+                    + "order by bucket, route "
+                    + "for update";
+            Map<LatencyKey, LatencySummary> merged = new TreeMap<>(LatencyKey.ORDER);
+            namedParameterJdbcTemplate.query(sql, params, rs -> {
+                LatencyKey key = new LatencyKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getString("route"));
+                LatencySummary added = sorted.get(key);
+                if (added != null) {
+                    merged.put(key, toSummary(rs.getBytes("digest"), rs.getLong("errors")).merge(added));
+                }
+            });
+
+            List<Object[]> rows = new ArrayList<>(merged.size());
+            merged.forEach((key, summary) -> rows.add(new Object[]{summary.getErrors(), summary.getDigest().toBytes(),
+                    key.bucket(), key.route()}));
+            jdbcTemplate.batchUpdate("update endpoint_latency_hour set errors = ?, digest = ? "
+                    + "where bucket = ? and route = ?", rows);
+        });
+    }
+
+    public Map<String, LatencySummary> find(LocalDateTime from, LocalDateTime to, List<String> routes) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("route", routes == null ? null : routes.toArray(new String[0]));
+        String routeFilter = routes == null || routes.isEmpty() ? "" : " and route = any(:route)";
+        String sql = "select route, errors, digest "
+                + "from endpoint_latency_hour "
+                + "where bucket >= (:from) and bucket < (:to)" + routeFilter;
+
+        Map<String, LatencySummary> summaries = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            LatencySummary summary = toSummary(rs.getBytes("digest"), rs.getLong("errors"));
+            summaries.computeIfAbsent(rs.getString("route"), route -> newSummary()).merge(summary);
+        });
+        return summaries;
+    }
+
+    private static LatencySummary toSummary(byte[] digest, long errors) {
+        return new LatencySummary(TDigest.fromBytes(digest), errors);
+    }
+}
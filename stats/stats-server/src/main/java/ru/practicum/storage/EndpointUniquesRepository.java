@@ -0,0 +1,369 @@
+package ru.practicum.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.aggregation.HyperLogLog;
+import ru.practicum.aggregation.TopN;
+import ru.practicum.mapper.IpAddressMapper;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EndpointKey;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.QuerySegment;
+import ru.practicum.model.Statistic;
+import ru.practicum.model.TimeSeriesPoint;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+public class EndpointUniquesRepository {
+    private static final int REBUILD_FETCH_SIZE = 10000;
+    private static final int MERGE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AppDictionary appDictionary;
+    private final int precision;
+
+    public EndpointUniquesRepository(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     AppDictionary appDictionary,
+                                     @Value("${stats.unique.error-rate:0.02}") double errorRate,
+                                     @Value("${stats.query.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+        this.transactionTemplate = transactionTemplate;
+        this.appDictionary = appDictionary;
+        this.precision = HyperLogLog.precisionForError(errorRate);
+    }
+
+    public void add(List<EndpointHistory> hits) {
+        Map<BucketKey, HyperLogLog> sketches = new TreeMap<>(BucketKey.ORDER);
+        for (EndpointHistory hit : hits) {
+            BucketKey key = new BucketKey(Granularity.HOUR.floor(hit.getRequestTimestamp()), hit.getApp().getId(), hit.getUri());
+            sketches.computeIfAbsent(key, k -> new HyperLogLog(precision)).addHash(IpAddressMapper.hash(hit.getIp()));
+        }
+        merge(sketches);
+    }
+
+    public void addFrom(String staging) {
+        String sql = "select s.app_id, u.uri, date_trunc('hour', s.request_timestamp) as bucket, host(s.ip) as ip "
+                + "from " + staging + " s join uris u on u.id = s.uri_id "
+                + "order by bucket, s.app_id, u.uri";
+        Map<BucketKey, HyperLogLog> pending = new TreeMap<>(BucketKey.ORDER);
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(sql);
+            statement.setFetchSize(REBUILD_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            BucketKey key = new BucketKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"), rs.getString("uri"));
+            if (pending.size() >= MERGE_BATCH_SIZE && !pending.containsKey(key)) {
+                merge(pending);
+                pending.clear();
+            }
+            pending.computeIfAbsent(key, k -> new HyperLogLog(precision)).addHash(IpAddressMapper.hash(rs.getString("ip")));
+        });
+        merge(pending);
+    }
+
+    private void merge(Map<BucketKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        byte[] empty = new HyperLogLog(precision).toBytes();
+        List<Object[]> placeholders = new ArrayList<>(sketches.size());
+        List<String> buckets = new ArrayList<>(sketches.size());
+        List<Integer> apps = new ArrayList<>(sketches.size());
+        List<String> uris = new ArrayList<>(sketches.size());
+        for (BucketKey key : sketches.keySet()) {
+            placeholders.add(new Object[]{key.appId(), key.uri(), key.bucket(), empty});
+            buckets.add(key.bucket().toString());
+            apps.add(key.appId());
+            uris.add(key.uri());
+        }
+        jdbcTemplate.batchUpdate("insert into endpoint_uniques_hour (app_id, uri, bucket, sketch) "
+                + "values (?, ?, ?, ?) "
+                + "on conflict (bucket, app_id, uri) do nothing", placeholders);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("bucket", buckets.toArray(new String[0]))
+                .addValue("app", apps.toArray(new Integer[0]))
+                .addValue("uri", uris.toArray(new String[0]));
+        String sql = "select app_id, uri, bucket, sketch "
+                + "from endpoint_uniques_hour "
+                + "where (bucket, app_id, uri) in (select * from unnest(cast(:bucket as timestamp[]), "
+                + "cast(:app as integer[]), cast(:uri as varchar[]))) "
+                + "order by bucket, app_id, uri "
+                + "for update";
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            BucketKey key = new BucketKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"), rs.getString("uri"));
+            HyperLogLog added = sketches.get(key);
+            if (added != null) {
+                sketches.put(key, HyperLogLog.fromBytes(rs.getBytes("sketch")).merge(added));
+            }
+        });
+
+        List<Object[]> rows = new ArrayList<>(sketches.size());
+        sketches.forEach((key, sketch) -> rows.add(new Object[]{sketch.toBytes(), key.bucket(), key.appId(), key.uri()}));
+        jdbcTemplate.batchUpdate("update endpoint_uniques_hour set sketch = ? "
+                + "where bucket = ? and app_id = ? and uri = ?", rows);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public Map<EndpointKey, HyperLogLog> getSketches(List<QuerySegment> segments, List<String> uris) {
+        Map<EndpointKey, HyperLogLog> sketches = new HashMap<>();
+        streamSketches(segments, uris, sketches::put);
+        return sketches;
+    }
+
+    public void streamStatistic(List<QuerySegment> segments, List<String> uris, Integer limit, Consumer<Statistic> consumer) {
+        if (limit == null) {
+            streamSketches(segments, uris, (key, sketch) -> emit(key, sketch.estimate(), consumer));
+            return;
+        }
+
+        TopN<Map.Entry<EndpointKey, Long>> top = new TopN<>(limit, Map.Entry.comparingByValue());
+        streamSketches(segments, uris, (key, sketch) -> top.offer(Map.entry(key, sketch.estimate())));
+        top.toList().forEach(entry -> emit(entry.getKey(), entry.getValue(), consumer));
+    }
+
+    public Map<String, Long> getViews(Map<String, List<QuerySegment>> windows) {
+        String sql = "select w.uri, s.app_id, s.sketch, s.ip "
+                + "from " + ViewSegments.SOURCE + " "
+                + "cross join lateral ( "
+                + "select r.app_id, r.sketch, cast(null as varchar) as ip "
+                + "from endpoint_uniques_hour r "
+                + "where w.level = '" + Granularity.HOUR.getTruncField() + "' and r.uri = w.uri "
+                + "and r.bucket >= w.seg_from and r.bucket < w.seg_to "
+                + "union all "
+                + "select distinct h.app_id, cast(null as bytea) as sketch, host(h.ip) as ip "
+                + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                + "where w.level = '" + ViewSegments.RAW + "' and u.uri = w.uri and h.app_id is not null "
+                + "and h.request_timestamp >= w.seg_from and h.request_timestamp < w.seg_to"
+                + ") as s "
+                + "order by w.uri, s.app_id";
+
+        Map<String, Long> views = new HashMap<>();
+        BiConsumer<EndpointKey, HyperLogLog> consumer = (key, sketch) -> views.merge(key.getUri(), sketch.estimate(), Long::sum);
+        SketchGroup group = new SketchGroup();
+        streamingJdbcTemplate.query(sql, ViewSegments.of(windows).toParameters(), rs -> {
+            addToGroup(group, rs.getInt("app_id"), rs.getString("uri"), rs.getBytes("sketch"), rs.getString("ip"), consumer);
+        });
+        emit(group, consumer);
+        return views;
+    }
+
+    public List<TimeSeriesPoint> getTimeSeries(List<QuerySegment> segments, List<String> uris, Granularity step) {
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("uri", uris == null ? null : uris.toArray(new String[0]));
+        String bucket = "date_trunc('" + step.getTruncField() + "', %s) as bucket";
+        String uriFilter = uris == null || uris.isEmpty() ? "" : " and uri = any(:uri)";
+
+        StringJoiner union = new StringJoiner(" union all ");
+        for (int i = 0; i < segments.size(); i++) {
+            QuerySegment segment = segments.get(i);
+            params.addValue("from" + i, segment.getFrom());
+            params.addValue("to" + i, segment.getTo());
+            if (segment.isRaw()) {
+                union.add("select distinct " + String.format(bucket, "h.request_timestamp") + ", cast(null as bytea) as sketch, host(h.ip) as ip "
+                        + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                        + "where h.request_timestamp >= (:from" + i + ") and h.request_timestamp < (:to" + i + ")" + uriFilter);
+            } else {
+                union.add("select " + String.format(bucket, "bucket") + ", sketch, cast(null as varchar) as ip "
+                        + "from endpoint_uniques_hour "
+                        + "where bucket >= (:from" + i + ") and bucket < (:to" + i + ")" + uriFilter);
+            }
+        }
+        String sql = "select bucket, sketch, ip from ( "
+                + union
+                + ") as visits "
+                + "order by bucket";
+
+        List<TimeSeriesPoint> points = new ArrayList<>();
+        SeriesGroup group = new SeriesGroup();
+        streamingJdbcTemplate.query(sql, params, rs -> {
+            LocalDateTime rowBucket = rs.getTimestamp("bucket").toLocalDateTime();
+            if (group.sketch == null || !group.bucket.equals(rowBucket)) {
+                emit(group, points);
+                group.bucket = rowBucket;
+                group.sketch = new HyperLogLog(precision);
+            }
+
+            byte[] sketch = rs.getBytes("sketch");
+            if (sketch != null) {
+                group.sketch = group.sketch.merge(HyperLogLog.fromBytes(sketch));
+            } else {
+                group.sketch.addHash(IpAddressMapper.hash(rs.getString("ip")));
+            }
+        });
+        emit(group, points);
+        return points;
+    }
+
+    private void emit(EndpointKey key, long hits, Consumer<Statistic> consumer) {
+        appDictionary.getById(key.getAppId()).ifPresent(app -> consumer.accept(new Statistic(app, key.getUri(), (int) hits)));
+    }
+
+    private void streamSketches(List<QuerySegment> segments, List<String> uris, BiConsumer<EndpointKey, HyperLogLog> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("uri", uris == null ? null : uris.toArray(new String[0]));
+        StringJoiner sketchRanges = new StringJoiner(" or ", "(", ")");
+        StringJoiner rawRanges = new StringJoiner(" or ", "(", ")");
+        for (int i = 0; i < segments.size(); i++) {
+            QuerySegment segment = segments.get(i);
+            params.addValue("from" + i, segment.getFrom());
+            params.addValue("to" + i, segment.getTo());
+            if (segment.isRaw()) {
+                rawRanges.add("(request_timestamp >= (:from" + i + ") and request_timestamp < (:to" + i + "))");
+            } else {
+                sketchRanges.add("(bucket >= (:from" + i + ") and bucket < (:to" + i + "))");
+            }
+        }
+        String uriFilter = uris == null || uris.isEmpty() ? "" : " and uri = any(:uri)";
+
+        StringJoiner union = new StringJoiner(" union all ");
+        if (sketchRanges.length() > 2) {
+            union.add("select app_id, uri, sketch, cast(null as varchar) as ip "
+                    + "from endpoint_uniques_hour "
+                    + "where " + sketchRanges + uriFilter);
+        }
+        if (rawRanges.length() > 2) {
+            union.add("select distinct h.app_id, u.uri, cast(null as bytea) as sketch, host(h.ip) as ip "
+                    + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                    + "where " + rawRanges + uriFilter);
+        }
+        String sql = "select app_id, uri, sketch, ip from ( "
+                + union
+                + ") as visits "
+                + "order by app_id, uri";
+
+        SketchGroup group = new SketchGroup();
+        streamingJdbcTemplate.query(sql, params, rs -> {
+            addToGroup(group, rs.getInt("app_id"), rs.getString("uri"), rs.getBytes("sketch"), rs.getString("ip"), consumer);
+        });
+        emit(group, consumer);
+    }
+
+    private void addToGroup(SketchGroup group, int appId, String uri, byte[] sketch, String ip,
+                            BiConsumer<EndpointKey, HyperLogLog> consumer) {
+        if (group.sketch == null || group.appId != appId || !group.uri.equals(uri)) {
+            emit(group, consumer);
+            group.appId = appId;
+            group.uri = uri;
+            group.sketch = new HyperLogLog(precision);
+        }
+
+        if (sketch != null) {
+            group.sketch = group.sketch.merge(HyperLogLog.fromBytes(sketch));
+        } else {
+            group.sketch.addHash(IpAddressMapper.hash(ip));
+        }
+    }
+
+    public void rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime bucketsFrom = Granularity.HOUR.floor(from);
+        LocalDateTime bucketsTo = Granularity.HOUR.floor(to).plusHours(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("lock table endpoint_uniques_hour in share row exclusive mode");
+            jdbcTemplate.update("delete from endpoint_uniques_hour where bucket >= ? and bucket < ?", bucketsFrom, bucketsTo);
+
+            String sql = "select h.app_id, u.uri, date_trunc('hour', h.request_timestamp) as bucket, host(h.ip) as ip "
+                    + "from endpoint_hist h join uris u on u.id = h.uri_id "
+                    + "where h.request_timestamp >= ? and h.request_timestamp < ? and h.app_id is not null "
+                    + "order by bucket, h.app_id, u.uri";
+            Map<BucketKey, HyperLogLog> pending = new TreeMap<>(BucketKey.ORDER);
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(sql);
+                statement.setFetchSize(REBUILD_FETCH_SIZE);
+                statement.setTimestamp(1, Timestamp.valueOf(bucketsFrom));
+                statement.setTimestamp(2, Timestamp.valueOf(bucketsTo));
+                return statement;
+            }, rs -> {
+                BucketKey key = new BucketKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"), rs.getString("uri"));
+                if (!pending.containsKey(key)) {
+                    insertSketches(pending);
+                }
+                pending.computeIfAbsent(key, k -> new HyperLogLog(precision)).addHash(IpAddressMapper.hash(rs.getString("ip")));
+            });
+            insertSketches(pending);
+        });
+        log.info("Пересчитаны оценки уникальных посещений за период с {} по {}", bucketsFrom, bucketsTo);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Boolean empty = jdbcTemplate.queryForObject("select not exists (select 1 from endpoint_uniques_hour)", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return;
+        }
+
+        jdbcTemplate.query("select min(request_timestamp) as min_ts, max(request_timestamp) as max_ts from endpoint_hist", rs -> {
+            Timestamp min = rs.getTimestamp("min_ts");
+            Timestamp max = rs.getTimestamp("max_ts");
+            if (min != null && max != null) {
+                rebuild(min.toLocalDateTime(), max.toLocalDateTime());
+            }
+        });
+    }
+
+    private void insertSketches(Map<BucketKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(sketches.size());
+        sketches.forEach((key, sketch) -> rows.add(new Object[]{key.appId(), key.uri(), key.bucket(), sketch.toBytes()}));
+        jdbcTemplate.batchUpdate("insert into endpoint_uniques_hour (app_id, uri, bucket, sketch) values (?, ?, ?, ?)", rows);
+        sketches.clear();
+    }
+
+    private void emit(SketchGroup group, BiConsumer<EndpointKey, HyperLogLog> consumer) {
+        if (group.sketch == null) {
+            return;
+        }
+        consumer.accept(new EndpointKey(group.appId, group.uri), group.sketch);
+        group.sketch = null;
+    }
+
+    private void emit(SeriesGroup group, List<TimeSeriesPoint> points) {
+        if (group.sketch != null) {
+            points.add(new TimeSeriesPoint(group.bucket, group.sketch.estimate()));
+        }
+    }
+
+    private static class SeriesGroup {
+        private LocalDateTime bucket;
+        private HyperLogLog sketch;
+    }
+
+    private static class SketchGroup {
+        private int appId;
+        private String uri;
+        private HyperLogLog sketch;
+    }
+}
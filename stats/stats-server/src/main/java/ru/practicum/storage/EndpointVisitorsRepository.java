@@ -0,0 +1,126 @@
+package ru.practicum.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Statistic;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Component
+public class EndpointVisitorsRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AppDictionary appDictionary;
+
+    public EndpointVisitorsRepository(JdbcTemplate jdbcTemplate,
+                                      NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                      AppDictionary appDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.appDictionary = appDictionary;
+    }
+
+    public void add(List<EndpointHistory> hits) {
+        Map<VisitorKey, LocalDateTime[]> visitors = new TreeMap<>(VisitorKey.ORDER);
+        for (EndpointHistory hit : hits) {
+            LocalDateTime timestamp = hit.getRequestTimestamp();
+            LocalDateTime[] seen = visitors.computeIfAbsent(new VisitorKey(hit.getUriId(), hit.getApp().getId(), hit.getIp()),
+                    k -> new LocalDateTime[]{timestamp, timestamp});
+            if (timestamp.isBefore(seen[0])) {
+                seen[0] = timestamp;
+            } else if (timestamp.isAfter(seen[1])) {
+                seen[1] = timestamp;
+            }
+        }
+        if (visitors.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(visitors.size());
+        visitors.forEach((key, seen) -> rows.add(new Object[]{key.appId(), key.uriId(), key.ip(), seen[0], seen[1]}));
+        jdbcTemplate.batchUpdate("insert into endpoint_visitors as v (app_id, uri_id, ip, first_seen, last_seen) "
+                + "values (?, ?, cast(? as inet), ?, ?) "
+                + "on conflict (uri_id, app_id, ip) do update "
+                + "set first_seen = least(v.first_seen, excluded.first_seen), "
+                + "last_seen = greatest(v.last_seen, excluded.last_seen) "
+                + "where excluded.first_seen < v.first_seen or excluded.last_seen > v.last_seen", rows);
+    }
+
+    public void addFrom(String staging) {
+        jdbcTemplate.update("insert into endpoint_visitors as v (app_id, uri_id, ip, first_seen, last_seen) "
+                + "select app_id, uri_id, ip, min(request_timestamp), max(request_timestamp) "
+                + "from " + staging + " "
+                + "group by app_id, uri_id, ip "
+                + "order by uri_id, app_id, ip "
+                + "on conflict (uri_id, app_id, ip) do update "
+                + "set first_seen = least(v.first_seen, excluded.first_seen), "
+                + "last_seen = greatest(v.last_seen, excluded.last_seen) "
+                + "where excluded.first_seen < v.first_seen or excluded.last_seen > v.last_seen");
+    }
+
+    public Optional<List<Statistic>> findUniqueVisitors(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end)
+                .addValue("uri", uris.toArray(new String[0]))
+                .addValue("limit", limit);
+
+        String sql = "select g.app_id, g.uri, g.hits, bool_or(g.visited_later) over () as visited_later from ("
+                + "select v.app_id, u.uri, count(*) as hits, bool_or(v.last_seen > (:end)) as visited_later "
+                + "from endpoint_visitors v join uris u on u.id = v.uri_id "
+                + "where u.uri = any(:uri) and v.last_seen >= (:start) "
+                + "group by v.app_id, u.id"
+                + ") as g "
+                + "order by g.hits desc "
+                + (limit == null ? "" : "limit (:limit)");
+
+        List<Statistic> statistics = new ArrayList<>();
+        boolean[] visitedLater = new boolean[1];
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            visitedLater[0] |= rs.getBoolean("visited_later");
+            Optional<App> app = appDictionary.getById(rs.getInt("app_id"));
+            if (app.isPresent()) {
+                statistics.add(new Statistic(app.get(), rs.getString("uri"), rs.getInt("hits")));
+            }
+        });
+        return visitedLater[0] ? Optional.empty() : Optional.of(statistics);
+    }
+
+    public Optional<Map<String, Long>> findViews(Map<String, LocalDateTime> windows, LocalDateTime end) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uri", windows.keySet().toArray(new String[0]))
+                .addValue("start", windows.values().stream().map(LocalDateTime::toString).toArray(String[]::new))
+                .addValue("end", end);
+
+        String sql = "select w.uri, count(*) as hits, bool_or(v.last_seen > (:end)) as visited_later "
+                + "from unnest(cast(:uri as varchar[]), cast(:start as timestamp[])) as w(uri, start) "
+                + "join uris u on u.uri = w.uri "
+                + "join endpoint_visitors v on v.uri_id = u.id and v.last_seen >= w.start "
+                + "group by w.uri";
+
+        Map<String, Long> views = new HashMap<>();
+        boolean[] visitedLater = new boolean[1];
+        namedParameterJdbcTemplate.query(sql, params, rs -> {
+            visitedLater[0] |= rs.getBoolean("visited_later");
+            views.put(rs.getString("uri"), rs.getLong("hits"));
+        });
+        return visitedLater[0] ? Optional.empty() : Optional.of(views);
+    }
+
+    private record VisitorKey(int uriId, int appId, String ip) {
+        private static final Comparator<VisitorKey> ORDER = Comparator.comparingInt(VisitorKey::uriId)
+                .thenComparingInt(VisitorKey::appId)
+                .thenComparing(VisitorKey::ip);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.storage;
+
+import ru.practicum.model.EndpointHistory;
+
+import java.util.List;
+
+public interface HitListener {
+    void onHits(List<EndpointHistory> hits);
+}
@@ -0,0 +1,75 @@
+package ru.practicum.storage;
+
+class HitSegment {
+    static final int BYTES_PER_HIT = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final long[] timestamps;
+    private final int[] appIds;
+    private final int[] uriIds;
+    private final long[] ipHashes;
+    private final int[] repeatCounts;
+    private volatile int size;
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    HitSegment(int capacity) {
+        this.timestamps = new long[capacity];
+        this.appIds = new int[capacity];
+        this.uriIds = new int[capacity];
+        this.ipHashes = new long[capacity];
+        this.repeatCounts = new int[capacity];
+    }
+
+    void append(long timestamp, int appId, int uriId, long ipHash, int repeatCount) {
+        int index = size;
+        timestamps[index] = timestamp;
+        appIds[index] = appId;
+        uriIds[index] = uriId;
+        ipHashes[index] = ipHash;
+        repeatCounts[index] = repeatCount;
+        if (timestamp < minTimestamp) {
+            minTimestamp = timestamp;
+        }
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+        size = index + 1;
+    }
+
+    void scan(long from, long to, UriFilter uriFilter, HitVisitor visitor) {
+        if (maxTimestamp < from || minTimestamp >= to) {
+            return;
+        }
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[i];
+            if (timestamp >= from && timestamp < to && uriFilter.test(uriIds[i])) {
+                visitor.visit(appIds[i], uriIds[i], ipHashes[i], repeatCounts[i]);
+            }
+        }
+    }
+
+    boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return timestamps.length;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    interface UriFilter {
+        boolean test(int uriId);
+    }
+
+    interface HitVisitor {
+        void visit(int appId, int uriId, long ipHash, int repeatCount);
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.mapper.IpAddressMapper;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.EndpointKey;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Slf4j
+@Component
+public class HotWindowHitStore implements HitListener {
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private final long windowMicros;
+    private final long maxHits;
+    private final int segmentSize;
+    private final List<HitSegment> segments = new CopyOnWriteArrayList<>();
+    private final UriDictionary uriDictionary;
+    private volatile long windowStart;
+    private HitSegment current;
+
+    public HotWindowHitStore(@Value("${stats.hot-window.hours:6}") int hours,
+                             @Value("${stats.hot-window.max-hits:2000000}") long maxHits,
+                             @Value("${stats.hot-window.segment-size:65536}") int segmentSize,
+                             UriDictionary uriDictionary,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this.uriDictionary = uriDictionary;
+        this.windowMicros = hours * 3600L * MICROS_PER_SECOND;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.maxHits = Math.max(maxHits, this.segmentSize);
+        this.windowStart = hours > 0 ? toMicros(LocalDateTime.now()) : Long.MAX_VALUE;
+        meterRegistry.ifAvailable(this::registerMetrics);
+    }
+
+    public boolean isEnabled() {
+        return windowMicros > 0;
+    }
+
+    public LocalDateTime split(LocalDateTime from, LocalDateTime to) {
+        long start = windowStart;
+        if (start == Long.MAX_VALUE || toMicros(to) <= start) {
+            return to;
+        }
+        LocalDateTime covered = toLocalDateTime(start);
+        return from.isAfter(covered) ? from : covered;
+    }
+
+    @Override
+    public synchronized void onHits(List<EndpointHistory> hits) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        for (EndpointHistory hit : hits) {
+            long timestamp = toMicros(hit.getRequestTimestamp());
+            if (timestamp < windowStart) {
+                continue;
+            }
+            if (current == null || current.isFull()) {
+                current = new HitSegment(segmentSize);
+                segments.add(current);
+                evictOverCapacity();
+            }
+            current.append(timestamp, hit.getApp().getId(), hit.getUriId(), IpAddressMapper.hash(hit.getIp()), hit.getRepeatCount());
+        }
+    }
+
+    public Optional<Map<EndpointKey, Long>> countHits(LocalDateTime split, LocalDateTime to, List<String> uris) {
+        Map<Long, long[]> counts = new HashMap<>();
+        if (!scan(split, to, uris, (appId, uriId, ipHash, repeatCount) -> counts.computeIfAbsent(key(appId, uriId), k -> new long[1])[0] += repeatCount)) {
+            return Optional.empty();
+        }
+
+        Map<EndpointKey, Long> result = new HashMap<>(counts.size());
+        counts.forEach((key, count) -> toEndpointKey(key).ifPresent(endpoint -> result.put(endpoint, count[0])));
+        return Optional.of(result);
+    }
+
+    public Optional<Map<EndpointKey, Set<Long>>> collectVisitors(LocalDateTime split, LocalDateTime to, List<String> uris) {
+        Map<Long, Set<Long>> visitors = new HashMap<>();
+        if (!scan(split, to, uris, (appId, uriId, ipHash, repeatCount) -> visitors.computeIfAbsent(key(appId, uriId), k -> new HashSet<>()).add(ipHash))) {
+            return Optional.empty();
+        }
+
+        Map<EndpointKey, Set<Long>> result = new HashMap<>(visitors.size());
+        visitors.forEach((key, ipHashes) -> toEndpointKey(key).ifPresent(endpoint -> result.put(endpoint, ipHashes)));
+        return Optional.of(result);
+    }
+
+    public synchronized void advanceWindowStart(LocalDateTime after) {
+        long start = toMicros(after) + 1;
+        if (isEnabled() && start > windowStart) {
+            windowStart = start;
+            log.info("Окно оперативной статистики сдвинуто на {}", toLocalDateTime(windowStart));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.hot-window.evict-interval-ms:60000}")
+    public synchronized void evictExpired() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long cutoff = toMicros(LocalDateTime.now()) - windowMicros;
+        if (cutoff > windowStart) {
+            windowStart = cutoff;
+        }
+        segments.removeIf(segment -> segment != current && segment.getMaxTimestamp() < windowStart);
+        if (segments.isEmpty()) {
+            current = null;
+        }
+    }
+
+    public long getHits() {
+        long hits = 0;
+        for (HitSegment segment : segments) {
+            hits += segment.size();
+        }
+        return hits;
+    }
+
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (HitSegment segment : segments) {
+            bytes += (long) segment.capacity() * HitSegment.BYTES_PER_HIT;
+        }
+        return bytes;
+    }
+
+    // Scans [split, to) with the boundary the caller already sent to the database, so a concurrent window move
+    // cannot open a gap between the two sides. Returns false when the window moved past split during the scan.
+    private boolean scan(LocalDateTime split, LocalDateTime to, List<String> uriNames, HitSegment.HitVisitor visitor) {
+        long fromMicros = toMicros(split);
+        long toMicros = toMicros(to);
+        if (fromMicros >= toMicros) {
+            return true;
+        }
+
+        HitSegment.UriFilter uriFilter = uriId -> true;
+        if (uriNames != null && !uriNames.isEmpty()) {
+            Set<Integer> wanted = new HashSet<>();
+            for (String uri : uriNames) {
+                uriDictionary.findId(uri).ifPresent(wanted::add);
+            }
+            if (wanted.isEmpty()) {
+                return true;
+            }
+            uriFilter = wanted::contains;
+        }
+
+        for (HitSegment segment : segments) {
+            segment.scan(fromMicros, toMicros, uriFilter, visitor);
+        }
+        return windowStart <= fromMicros;
+    }
+
+    private void evictOverCapacity() {
+        long hits = (long) segments.size() * segmentSize;
+        while (hits > maxHits && segments.size() > 1) {
+            HitSegment oldest = segments.get(0);
+            if (oldest.getMaxTimestamp() >= windowStart) {
+                windowStart = oldest.getMaxTimestamp() + 1;
+            }
+            segments.remove(0);
+            hits -= segmentSize;
+        }
+        log.debug("Окно оперативной статистики начинается с {}", toLocalDateTime(windowStart));
+    }
+
+    private Optional<EndpointKey> toEndpointKey(long key) {
+        return uriDictionary.getUri((int) key).map(uri -> new EndpointKey((int) (key >>> Integer.SIZE), uri));
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        Gauge.builder("stats.hot.window.bytes", this, HotWindowHitStore::getAllocatedBytes).register(registry);
+        Gauge.builder("stats.hot.window.hits", this, HotWindowHitStore::getHits).register(registry);
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << Integer.SIZE) | (uriId & 0xFFFFFFFFL);
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        Instant instant = dateTime.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * MICROS_PER_SECOND + instant.getNano() / 1000;
+    }
+
+    private static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+}
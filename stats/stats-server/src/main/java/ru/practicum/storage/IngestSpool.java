@@ -0,0 +1,258 @@
+package ru.practicum.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+public class IngestSpool {
+    private final JdbcTemplate jdbcTemplate;
+    private final EndpointHistoryBatchWriter writer;
+    private final AppDictionary appDictionary;
+    private final UriDictionary uriDictionary;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int drainBatchSize;
+    private final boolean forceOnAppend;
+    private final ConcurrentSkipListMap<Long, SpoolSegment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private volatile SpoolSegment current;
+    private volatile long drainedSegment;
+    private volatile int drainedPosition;
+
+    public IngestSpool(JdbcTemplate jdbcTemplate,
+                       EndpointHistoryBatchWriter writer,
+                       AppDictionary appDictionary,
+                       UriDictionary uriDictionary,
+                       @Value("${stats.spool.enabled:false}") boolean enabled,
+                       @Value("${stats.spool.dir:spool}") String directory,
+                       @Value("${stats.spool.segment-size-bytes:67108864}") int segmentSize,
+                       @Value("${stats.spool.drain-batch-size:5000}") int drainBatchSize,
+                       @Value("${stats.spool.force-on-append:true}") boolean forceOnAppend,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writer = writer;
+        this.appDictionary = appDictionary;
+        this.uriDictionary = uriDictionary;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.drainBatchSize = drainBatchSize;
+        this.forceOnAppend = forceOnAppend;
+        if (enabled) {
+            meterRegistry.ifAvailable(registry -> Gauge.builder("stats.spool.backlog.bytes", this, IngestSpool::getBacklogBytes)
+                    .register(registry));
+        }
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        jdbcTemplate.query("select segment, position from ingest_spool_offset where id = 1", rs -> {
+            drainedSegment = rs.getLong("segment");
+            drainedPosition = rs.getInt("position");
+        });
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.toList();
+        }
+        long lastSequence = drainedSegment;
+        for (Path file : files) {
+            Long sequence = SpoolSegment.parseSequence(file);
+            if (sequence == null) {
+                continue;
+            }
+            if (sequence < drainedSegment) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            segments.put(sequence, SpoolSegment.open(directory, sequence, segmentSize));
+            lastSequence = Math.max(lastSequence, sequence);
+        }
+
+        current = SpoolSegment.open(directory, lastSequence + 1, segmentSize);
+        segments.put(current.getSequence(), current);
+        log.info("Открыт журнал приема запросов {}, сегментов к загрузке: {}", directory.toAbsolutePath(), segments.size() - 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void append(List<EndpointHistory> hits) {
+        List<byte[]> records = new ArrayList<>(hits.size());
+        for (EndpointHistory hit : hits) {
+            records.add(encode(hit));
+        }
+
+        synchronized (appendLock) {
+            try {
+                for (byte[] record : records) {
+                    if (!current.append(record)) {
+                        if (forceOnAppend) {
+                            current.force();
+                        }
+                        current = SpoolSegment.open(directory, current.getSequence() + 1, segmentSize);
+                        segments.put(current.getSequence(), current);
+                        if (!current.append(record)) {
+                            throw new IllegalStateException("Запись не помещается в сегмент журнала");
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Не удалось записать запросы в журнал приема", e);
+                throw new UncheckedIOException(e);
+            }
+            if (forceOnAppend) {
+                current.force();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.spool.drain-interval-ms:200}")
+    public synchronized void drain() {
+        if (!enabled) {
+            return;
+        }
+
+        while (true) {
+            Map.Entry<Long, SpoolSegment> entry = segments.ceilingEntry(drainedSegment);
+            if (entry == null) {
+                return;
+            }
+            SpoolSegment segment = entry.getValue();
+            boolean sealed = segment != current;
+            int from = entry.getKey() == drainedSegment ? drainedPosition : 0;
+
+            List<EndpointHistory> hits = new ArrayList<>();
+            int to = segment.read(from, drainBatchSize, record -> decode(record).ifPresent(hits::add));
+            if (to == from) {
+                if (!sealed) {
+                    return;
+                }
+                segments.remove(entry.getKey());
+                deleteSegment(segment);
+                drainedSegment = entry.getKey() + 1;
+                drainedPosition = 0;
+                continue;
+            }
+
+            try {
+                writer.writeNow(hits, () -> saveOffset(entry.getKey(), to));
+            } catch (RuntimeException e) {
+                log.error("Не удалось загрузить запросы из журнала приема, повтор при следующем запуске", e);
+                return;
+            }
+            drainedSegment = entry.getKey();
+            drainedPosition = to;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+
+        drain();
+        for (SpoolSegment segment : segments.values()) {
+            try {
+                segment.force();
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть сегмент журнала {}", segment.getSequence(), e);
+            }
+        }
+    }
+
+    public long getBacklogBytes() {
+        long backlog = 0;
+        for (Map.Entry<Long, SpoolSegment> entry : segments.tailMap(drainedSegment).entrySet()) {
+            backlog += entry.getValue().getWritePosition();
+            if (entry.getKey() == drainedSegment) {
+                backlog -= drainedPosition;
+            }
+        }
+        return backlog;
+    }
+
+    private void saveOffset(long segment, int position) {
+        jdbcTemplate.update("insert into ingest_spool_offset (id, segment, position) values (1, ?, ?) "
+                + "on conflict (id) do update set segment = excluded.segment, position = excluded.position", segment, position);
+    }
+
+    private void deleteSegment(SpoolSegment segment) {
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент журнала {}", segment.getSequence(), e);
+        }
+    }
+
+    private byte[] encode(EndpointHistory hit) {
+        byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+        LocalDateTime timestamp = hit.getRequestTimestamp();
+        return ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES + Integer.BYTES + Short.BYTES + ip.length + Integer.BYTES)
+                .putInt(hit.getApp().getId())
+                .putInt(hit.getUriId())
+                .putLong(timestamp.toEpochSecond(ZoneOffset.UTC))
+                .putInt(timestamp.getNano())
+                .putShort((short) ip.length)
+                .put(ip)
+                .putInt(hit.getRepeatCount())
+                .array();
+    }
+
+    private Optional<EndpointHistory> decode(ByteBuffer record) {
+        int appId = record.getInt();
+        int uriId = record.getInt();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(record.getLong(), record.getInt(), ZoneOffset.UTC);
+        byte[] ip = new byte[record.getShort()];
+        record.get(ip);
+        int repeatCount = record.remaining() >= Integer.BYTES ? record.getInt() : 1;
+
+        Optional<App> app = appDictionary.getById(appId);
+        Optional<String> uri = uriDictionary.getUri(uriId);
+        if (app.isEmpty() || uri.isEmpty()) {
+            log.warn("Пропущена запись журнала с неизвестным приложением {} или адресом {}", appId, uriId);
+            return Optional.empty();
+        }
+        EndpointHistory hit = new EndpointHistory(uri.get(), new String(ip, StandardCharsets.UTF_8), timestamp);
+        hit.setApp(app.get());
+        hit.setUriId(uriId);
+        hit.setRepeatCount(repeatCount);
+        return Optional.of(hit);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.storage;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public record LatencyKey(LocalDateTime bucket, String route) {
+    static final Comparator<LatencyKey> ORDER = Comparator.comparing(LatencyKey::bucket)
+            .thenComparing(LatencyKey::route);
+}
@@ -0,0 +1,39 @@
+package ru.practicum.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaMigrator {
+    private final JdbcTemplate jdbcTemplate;
+
+    public String getRelationKind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList("select c.relkind "
+                + "from pg_class c join pg_namespace n on n.oid = c.relnamespace "
+                + "where c.relname = ? and n.nspname = current_schema()", String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    public boolean hasColumn(String table, String column) {
+        Boolean exists = jdbcTemplate.queryForObject("select exists (select 1 from information_schema.columns "
+                + "where table_schema = current_schema() and table_name = ? and column_name = ?)", Boolean.class, table, column);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    public void execute(String script) {
+        log.info("Выполняется миграция схемы {}", script);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource(script));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+class SpoolSegment {
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+
+    private final long sequence;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private volatile int writePosition;
+
+    private SpoolSegment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static SpoolSegment open(Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(channel.size(), size);
+        SpoolSegment segment = new SpoolSegment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        segment.writePosition = segment.read(0, capacity, Integer.MAX_VALUE, record -> {
+        });
+        return segment;
+    }
+
+    static String fileName(long sequence) {
+        return String.format("spool-%020d.dat", sequence);
+    }
+
+    static Long parseSequence(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("spool-") || !name.endsWith(".dat")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring("spool-".length(), name.length() - ".dat".length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    boolean append(byte[] record) {
+        int position = writePosition;
+        if (position + HEADER_BYTES + record.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        buffer.put(position + HEADER_BYTES, record);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, record.length);
+        writePosition = position + HEADER_BYTES + record.length;
+        return true;
+    }
+
+    int read(int from, int maxRecords, Consumer<ByteBuffer> consumer) {
+        return read(from, writePosition, maxRecords, consumer);
+    }
+
+    private int read(int from, int limit, int maxRecords, Consumer<ByteBuffer> consumer) {
+        int position = from;
+        for (int records = 0; records < maxRecords && position + HEADER_BYTES <= limit; records++) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > limit) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buffer.get(position + HEADER_BYTES, record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            consumer.accept(ByteBuffer.wrap(record));
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UriDictionary {
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final UriTemplateRegistry uriTemplateRegistry;
+    private final ConcurrentMap<String, Integer> idsByUri = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> urisById = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        namedParameterJdbcTemplate.query("select id, uri from uris", rs -> {
+            register(rs.getInt("id"), rs.getString("uri"));
+        });
+        log.info("Загружено {} адресов", urisById.size());
+    }
+
+    public Integer getId(String uri) {
+        return idsByUri.computeIfAbsent(uri, this::upsert);
+    }
+
+    public Map<String, Integer> getIds(Collection<String> uris) {
+        Map<String, Integer> ids = new HashMap<>(uris.size());
+        Set<String> missing = new HashSet<>();
+        for (String uri : uris) {
+            Integer id = idsByUri.get(uri);
+            if (id != null) {
+                ids.put(uri, id);
+            } else {
+                missing.add(uri);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        String[] names = missing.toArray(new String[0]);
+        Integer[] templateIds = new Integer[names.length];
+        Long[] entityIds = new Long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Optional<UriTemplateRegistry.TemplateMatch> match = uriTemplateRegistry.match(names[i]);
+            if (match.isPresent()) {
+                templateIds[i] = match.get().template().getId();
+                entityIds[i] = match.get().entityId();
+            }
+        }
+
+        namedParameterJdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement statement = con.prepareStatement("insert into uris (uri, template_id, entity_id) "
+                    + "select * from unnest(?, ?, ?) "
+                    + "on conflict (uri) do update set uri = excluded.uri "
+                    + "returning id, uri");
+            statement.setArray(1, con.createArrayOf("varchar", names));
+            statement.setArray(2, con.createArrayOf("integer", templateIds));
+            statement.setArray(3, con.createArrayOf("bigint", entityIds));
+            return statement;
+        }, rs -> {
+            register(rs.getInt("id"), rs.getString("uri"));
+            ids.put(rs.getString("uri"), rs.getInt("id"));
+        });
+        return ids;
+    }
+
+    public Optional<Integer> findId(String uri) {
+        Integer id = idsByUri.get(uri);
+        if (id != null) {
+            return Optional.of(id);
+        }
+
+        List<Integer> ids = namedParameterJdbcTemplate.queryForList("select id from uris where uri = (:uri)",
+                new MapSqlParameterSource("uri", uri), Integer.class);
+        ids.forEach(found -> register(found, uri));
+        return ids.stream().findFirst();
+    }
+
+    public List<String> findByTemplate(Integer templateId, Collection<Long> entityIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("templateId", templateId)
+                .addValue("entityId", entityIds == null ? null : entityIds.toArray(new Long[0]));
+        String entityFilter = entityIds == null || entityIds.isEmpty() ? "" : " and entity_id = any(:entityId)";
+        return namedParameterJdbcTemplate.queryForList("select uri from uris "
+                + "where template_id = (:templateId)" + entityFilter, params, String.class);
+    }
+
+    public List<String> findByPrefix(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return namedParameterJdbcTemplate.queryForList("select uri from uris where uri like (:pattern)",
+                new MapSqlParameterSource("pattern", pattern), String.class);
+    }
+
+    public Optional<String> getUri(Integer id) {
+        String uri = urisById.get(id);
+        if (uri != null) {
+            return Optional.of(uri);
+        }
+
+        List<String> uris = namedParameterJdbcTemplate.queryForList("select uri from uris where id = (:id)",
+                new MapSqlParameterSource("id", id), String.class);
+        uris.forEach(found -> register(id, found));
+        return uris.stream().findFirst();
+    }
+
+    private Integer upsert(String uri) {
+        Optional<UriTemplateRegistry.TemplateMatch> match = uriTemplateRegistry.match(uri);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uri", uri)
+                .addValue("templateId", match.map(found -> found.template().getId()).orElse(null))
+                .addValue("entityId", match.map(UriTemplateRegistry.TemplateMatch::entityId).orElse(null));
+        Integer id = namedParameterJdbcTemplate.queryForObject("insert into uris (uri, template_id, entity_id) "
+                        + "values (:uri, cast(:templateId as integer), cast(:entityId as bigint)) "
+                        + "on conflict (uri) do update set uri = excluded.uri "
+                        + "returning id",
+                params, Integer.class);
+        urisById.put(id, uri);
+        return id;
+    }
+
+    private void register(Integer id, String uri) {
+        idsByUri.putIfAbsent(uri, id);
+        urisById.putIfAbsent(id, uri);
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.UriTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
+@Component
+public class UriTemplateRegistry {
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final List<String> configured;
+    private volatile List<UriTemplate> templates = List.of();
+
+    public UriTemplateRegistry(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                               @Value("${stats.uri-templates:}") List<String> configured) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.configured = configured;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<UriTemplate> loaded = new ArrayList<>();
+        for (String template : configured) {
+            if (template.isBlank()) {
+                continue;
+            }
+            Integer id = namedParameterJdbcTemplate.queryForObject("insert into uri_templates (template) values (:template) "
+                            + "on conflict (template) do update set template = excluded.template "
+                            + "returning id",
+                    new MapSqlParameterSource("template", template.trim()), Integer.class);
+            UriTemplate uriTemplate = new UriTemplate(id, template.trim());
+            loaded.add(uriTemplate);
+
+            int matched = namedParameterJdbcTemplate.update("update uris "
+                            + "set template_id = (:id), entity_id = cast(substring(uri from (:regex)) as bigint) "
+                            + "where template_id is null and uri ~ (:regex)",
+                    new MapSqlParameterSource()
+                            .addValue("id", id)
+                            .addValue("regex", uriTemplate.getRegex()));
+            if (matched > 0) {
+                log.info("Шаблону {} сопоставлено {} адресов", uriTemplate.getTemplate(), matched);
+            }
+        }
+        templates = List.copyOf(loaded);
+        log.info("Загружено {} шаблонов адресов", templates.size());
+    }
+
+    public Optional<UriTemplate> find(String template) {
+        for (UriTemplate uriTemplate : templates) {
+            if (uriTemplate.getTemplate().equals(template)) {
+                return Optional.of(uriTemplate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<TemplateMatch> match(String uri) {
+        for (UriTemplate uriTemplate : templates) {
+            Optional<Long> entityId = uriTemplate.entityId(uri);
+            if (entityId.isPresent()) {
+                return Optional.of(new TemplateMatch(uriTemplate, entityId.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Collection<UriTemplate> getTemplates() {
+        return templates;
+    }
+
+    public record TemplateMatch(UriTemplate template, Long entityId) {
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.storage;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ru.practicum.model.QuerySegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class ViewSegments {
+    static final String RAW = "raw";
+    static final String SOURCE = "unnest(cast(:uri as varchar[]), cast(:level as varchar[]), "
+            + "cast(:from as timestamp[]), cast(:to as timestamp[])) as w(uri, level, seg_from, seg_to)";
+
+    private final List<String> uris = new ArrayList<>();
+    private final List<String> levels = new ArrayList<>();
+    private final List<String> froms = new ArrayList<>();
+    private final List<String> tos = new ArrayList<>();
+
+    private ViewSegments() {
+    }
+
+    static ViewSegments of(Map<String, List<QuerySegment>> windows) {
+        ViewSegments segments = new ViewSegments();
+        windows.forEach((uri, planned) -> {
+            for (QuerySegment segment : planned) {
+                segments.uris.add(uri);
+                segments.levels.add(segment.isRaw() ? RAW : segment.getGranularity().getTruncField());
+                segments.froms.add(segment.getFrom().toString());
+                segments.tos.add(segment.getTo().toString());
+            }
+        });
+        return segments;
+    }
+
+    MapSqlParameterSource toParameters() {
+        return new MapSqlParameterSource()
+                .addValue("uri", uris.toArray(new String[0]))
+                .addValue("level", levels.toArray(new String[0]))
+                .addValue("from", froms.toArray(new String[0]))
+                .addValue("to", tos.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS IX_ENDPOINT_HIST_TIMESTAMP ON endpoint_hist (request_timestamp);
+
+CREATE INDEX IF NOT EXISTS IX_ENDPOINT_HIST_URI_TIMESTAMP ON endpoint_hist (uri_id, request_timestamp);
@@ -0,0 +1,19 @@
+ALTER TABLE endpoint_hist RENAME TO endpoint_hist_legacy;
+
+DROP INDEX IF EXISTS IX_ENDPOINT_HIST_TIMESTAMP;
+
+DROP INDEX IF EXISTS IX_ENDPOINT_HIST_URI_TIMESTAMP;
+
+CREATE TABlE endpoint_hist
+(
+    id                BIGSERIAL,
+    app_id            INTEGER REFERENCES apps (id) ON DELETE CASCADE,
+    uri               VARCHAR(2000) NOT NULL,
+    ip                VARCHAR(15) NOT NULL,
+    request_timestamp TIMESTAMP NOT NULL,
+    CONSTRAINT PK_ENDPOINT_HIST PRIMARY KEY (id, request_timestamp)
+) PARTITION BY RANGE (request_timestamp);
+
+CREATE INDEX IX_ENDPOINT_HIST_TIMESTAMP ON endpoint_hist (request_timestamp);
+
+CREATE INDEX IX_ENDPOINT_HIST_URI_TIMESTAMP ON endpoint_hist (uri, request_timestamp);
@@ -0,0 +1 @@
+ALTER TABLE endpoint_hist ADD COLUMN IF NOT EXISTS repeat_count INTEGER NOT NULL DEFAULT 1;
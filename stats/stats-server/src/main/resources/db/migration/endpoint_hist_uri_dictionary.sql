@@ -0,0 +1,21 @@
+INSERT INTO uris (uri)
+SELECT DISTINCT uri
+FROM endpoint_hist
+ON CONFLICT (uri) DO NOTHING;
+
+ALTER TABLE endpoint_hist ADD COLUMN uri_id INTEGER REFERENCES uris (id);
+
+UPDATE endpoint_hist h
+SET uri_id = u.id
+FROM uris u
+WHERE u.uri = h.uri;
+
+ALTER TABLE endpoint_hist ALTER COLUMN uri_id SET NOT NULL;
+
+DROP INDEX IF EXISTS IX_ENDPOINT_HIST_URI_TIMESTAMP;
+
+ALTER TABLE endpoint_hist DROP COLUMN uri;
+
+ALTER TABLE endpoint_hist ALTER COLUMN ip TYPE INET USING ip::inet;
+
+TRUNCATE endpoint_uniques_hour;
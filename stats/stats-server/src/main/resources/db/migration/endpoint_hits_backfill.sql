@@ -0,0 +1,19 @@
+INSERT INTO endpoint_hits_minute (app_id, uri, bucket, hits)
+SELECT h.app_id, u.uri, date_trunc('minute', h.request_timestamp), sum(h.repeat_count)
+FROM endpoint_hist h
+JOIN uris u ON u.id = h.uri_id
+WHERE h.app_id IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM endpoint_hits_minute)
+GROUP BY h.app_id, u.id, date_trunc('minute', h.request_timestamp);
+
+INSERT INTO endpoint_hits_hour (app_id, uri, bucket, hits)
+SELECT app_id, uri, date_trunc('hour', bucket), sum(hits)
+FROM endpoint_hits_minute
+WHERE NOT EXISTS (SELECT 1 FROM endpoint_hits_hour)
+GROUP BY app_id, uri, date_trunc('hour', bucket);
+
+INSERT INTO endpoint_hits_day (app_id, uri, bucket, hits)
+SELECT app_id, uri, date_trunc('day', bucket), sum(hits)
+FROM endpoint_hits_hour
+WHERE NOT EXISTS (SELECT 1 FROM endpoint_hits_day)
+GROUP BY app_id, uri, date_trunc('day', bucket);
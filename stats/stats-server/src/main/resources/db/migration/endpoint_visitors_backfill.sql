@@ -0,0 +1,7 @@
+INSERT INTO endpoint_visitors (app_id, uri_id, ip, first_seen, last_seen)
+SELECT app_id, uri_id, ip, min(request_timestamp), max(request_timestamp)
+FROM endpoint_hist
+WHERE app_id IS NOT NULL
+  AND ip IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM endpoint_visitors)
+GROUP BY app_id, uri_id, ip;
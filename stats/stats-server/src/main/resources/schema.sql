@@ -5,11 +5,101 @@ CREATE TABlE IF NOT EXISTS apps
     CONSTRAINT UQ_APPS_NAME UNIQUE (name)
 );
 
+CREATE TABlE IF NOT EXISTS uri_templates
+(
+    id       INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    template VARCHAR(2000) NOT NULL,
+    CONSTRAINT UQ_URI_TEMPLATES_TEMPLATE UNIQUE (template)
+);
+
+CREATE TABlE IF NOT EXISTS uris
+(
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uri         VARCHAR(2000) NOT NULL,
+    template_id INTEGER REFERENCES uri_templates (id),
+    entity_id   BIGINT,
+    CONSTRAINT UQ_URIS_URI UNIQUE (uri)
+);
+
+ALTER TABLE uris ADD COLUMN IF NOT EXISTS template_id INTEGER REFERENCES uri_templates (id);
+
+ALTER TABLE uris ADD COLUMN IF NOT EXISTS entity_id BIGINT;
+
+CREATE INDEX IF NOT EXISTS IX_URIS_TEMPLATE_ENTITY ON uris (template_id, entity_id);
+
+CREATE INDEX IF NOT EXISTS IX_URIS_URI_PREFIX ON uris (uri varchar_pattern_ops);
+
 CREATE TABlE IF NOT EXISTS endpoint_hist
 (
-    id                INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id                BIGSERIAL,
     app_id            INTEGER REFERENCES apps (id) ON DELETE CASCADE,
-    uri               VARCHAR(2000) NOT NULL,
-    ip                VARCHAR(15) NOT NULL,
-    request_timestamp TIMESTAMP
-);
\ No newline at end of file
+    uri_id            INTEGER NOT NULL REFERENCES uris (id),
+    ip                INET NOT NULL,
+    request_timestamp TIMESTAMP NOT NULL,
+    repeat_count      INTEGER NOT NULL DEFAULT 1,
+    CONSTRAINT PK_ENDPOINT_HIST PRIMARY KEY (id, request_timestamp)
+) PARTITION BY RANGE (request_timestamp);
+
+CREATE TABlE IF NOT EXISTS endpoint_hits_minute
+(
+    app_id INTEGER NOT NULL REFERENCES apps (id) ON DELETE CASCADE,
+    uri    VARCHAR(2000) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT NOT NULL,
+    CONSTRAINT PK_ENDPOINT_HITS_MINUTE PRIMARY KEY (bucket, app_id, uri)
+);
+
+CREATE TABlE IF NOT EXISTS endpoint_hits_hour
+(
+    app_id INTEGER NOT NULL REFERENCES apps (id) ON DELETE CASCADE,
+    uri    VARCHAR(2000) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT NOT NULL,
+    CONSTRAINT PK_ENDPOINT_HITS_HOUR PRIMARY KEY (bucket, app_id, uri)
+);
+
+CREATE TABlE IF NOT EXISTS endpoint_hits_day
+(
+    app_id INTEGER NOT NULL REFERENCES apps (id) ON DELETE CASCADE,
+    uri    VARCHAR(2000) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT NOT NULL,
+    CONSTRAINT PK_ENDPOINT_HITS_DAY PRIMARY KEY (bucket, app_id, uri)
+);
+
+CREATE TABlE IF NOT EXISTS endpoint_uniques_hour
+(
+    app_id INTEGER NOT NULL REFERENCES apps (id) ON DELETE CASCADE,
+    uri    VARCHAR(2000) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    sketch BYTEA NOT NULL,
+    CONSTRAINT PK_ENDPOINT_UNIQUES_HOUR PRIMARY KEY (bucket, app_id, uri)
+);
+
+CREATE TABlE IF NOT EXISTS ingest_spool_offset
+(
+    id       INTEGER PRIMARY KEY,
+    segment  BIGINT NOT NULL,
+    position BIGINT NOT NULL
+);
+
+CREATE TABlE IF NOT EXISTS endpoint_visitors
+(
+    app_id     INTEGER NOT NULL REFERENCES apps (id) ON DELETE CASCADE,
+    uri_id     INTEGER NOT NULL REFERENCES uris (id),
+    ip         INET NOT NULL,
+    first_seen TIMESTAMP NOT NULL,
+    last_seen  TIMESTAMP NOT NULL,
+    CONSTRAINT PK_ENDPOINT_VISITORS PRIMARY KEY (uri_id, app_id, ip)
+);
+
+CREATE INDEX IF NOT EXISTS IX_ENDPOINT_VISITORS_LAST_SEEN ON endpoint_visitors (uri_id, last_seen, app_id);
+
+CREATE TABlE IF NOT EXISTS endpoint_latency_hour
+(
+    route  VARCHAR(2000) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    errors BIGINT NOT NULL,
+    digest BYTEA NOT NULL,
+    CONSTRAINT PK_ENDPOINT_LATENCY_HOUR PRIMARY KEY (bucket, route)
+);
@@ -0,0 +1,137 @@
+package ru.practicum.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog(14).estimate()).isZero();
+    }
+
+    @Test
+    void duplicatesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add("192.168.0." + (i % 100));
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(100);
+    }
+
+    @Test
+    void estimateStaysWithinErrorBound() {
+        for (int precision : new int[]{10, 12, 14}) {
+            double standardError = 1.04 / Math.sqrt(1 << precision);
+            for (int cardinality : new int[]{1_000, 50_000, 500_000}) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (int i = 0; i < cardinality; i++) {
+                    sketch.add("10." + (i >>> 16) + "." + ((i >>> 8) & 0xff) + "." + (i & 0xff) + "#" + precision);
+                }
+
+                assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(cardinality * standardError * 3));
+            }
+        }
+    }
+
+    @Test
+    void precisionForErrorMatchesRequestedBound() {
+        assertThat(HyperLogLog.precisionForError(0.02)).isEqualTo(12);
+        assertThat(HyperLogLog.precisionForError(0.001)).isEqualTo(HyperLogLog.MAX_PRECISION);
+        assertThat(HyperLogLog.precisionForError(0.5)).isEqualTo(HyperLogLog.MIN_PRECISION);
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int i = 0; i < 30_000; i++) {
+            String value = "visitor-" + i;
+            if (i < 20_000) {
+                left.add(value);
+            }
+            if (i >= 10_000) {
+                right.add(value);
+            }
+            union.add(value);
+        }
+
+        assertThat(left.merge(right).toBytes()).isEqualTo(union.toBytes());
+    }
+
+    @Test
+    void mergeIsIdempotent() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add("visitor-" + i);
+        }
+        long estimate = sketch.estimate();
+
+        sketch.merge(HyperLogLog.fromBytes(sketch.toBytes()));
+
+        assertThat(sketch.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void mergeOfDifferentPrecisionsFoldsToLowerPrecision() {
+        HyperLogLog coarse = new HyperLogLog(10);
+        HyperLogLog fine = new HyperLogLog(14);
+        HyperLogLog expected = new HyperLogLog(10);
+        for (int i = 0; i < 20_000; i++) {
+            String value = "visitor-" + i;
+            if (i % 2 == 0) {
+                coarse.add(value);
+            } else {
+                fine.add(value);
+            }
+            expected.add(value);
+        }
+
+        HyperLogLog merged = fine.merge(coarse);
+
+        assertThat(merged.getPrecision()).isEqualTo(10);
+        assertThat(merged.toBytes()).isEqualTo(expected.toBytes());
+    }
+
+    @Test
+    void sparseSketchRoundTrips() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 50; i++) {
+            sketch.add("visitor-" + i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes.length).isLessThan(1 << 14);
+        assertThat(restored.getPrecision()).isEqualTo(14);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    void denseSketchRoundTrips() {
+        HyperLogLog sketch = new HyperLogLog(8);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("visitor-" + i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes.length).isEqualTo(2 + (1 << 8));
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    void invalidPrecisionIsRejected() {
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MIN_PRECISION - 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondRingTest {
+    private static final long NOW = 1_700_000_000L;
+
+    @Test
+    void sumsCountHitsInsideEachWindow() {
+        SecondRing ring = new SecondRing(900);
+        ring.add(NOW - 30, 2);
+        ring.add(NOW - 120, 3);
+        ring.add(NOW - 600, 4);
+        ring.add(NOW, 1);
+
+        assertThat(ring.sums(NOW, 60, 300, 900)).containsExactly(3, 6, 10);
+    }
+
+    @Test
+    void staleSecondDoesNotOverwriteNewerSlot() {
+        SecondRing ring = new SecondRing(10);
+        ring.add(NOW, 5);
+
+        assertThat(ring.add(NOW - 10, 7)).isTrue();
+        assertThat(ring.sums(NOW, 10)).containsExactly(5);
+    }
+
+    @Test
+    void ringWithRecentHitsIsNotRetired() {
+        SecondRing ring = new SecondRing(900);
+        ring.add(NOW, 1);
+
+        assertThat(ring.retire(NOW)).isFalse();
+        assertThat(ring.add(NOW, 1)).isTrue();
+        assertThat(ring.sums(NOW, 60)).containsExactly(2);
+    }
+
+    @Test
+    void retiredRingRejectsHits() {
+        SecondRing ring = new SecondRing(900);
+        ring.add(NOW - 1000, 1);
+
+        assertThat(ring.retire(NOW - 900)).isTrue();
+        assertThat(ring.retire(NOW - 900)).isTrue();
+        assertThat(ring.add(NOW, 1)).isFalse();
+    }
+}
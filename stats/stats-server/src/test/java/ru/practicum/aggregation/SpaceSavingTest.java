@@ -0,0 +1,68 @@
+package ru.practicum.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTest {
+
+    @Test
+    void keysWithinCapacityAreCountedExactly() {
+        SpaceSaving<String> top = new SpaceSaving<>(3);
+        top.offer("a", 5, Long.MAX_VALUE);
+        top.offer("b", 2, Long.MAX_VALUE);
+        top.offer("a", 1, Long.MAX_VALUE);
+
+        assertThat(top.get("a")).isEqualTo(new SpaceSaving.Item<>("a", 6, 0));
+        assertThat(top.get("b")).isEqualTo(new SpaceSaving.Item<>("b", 2, 0));
+        assertThat(top.get("c")).isNull();
+    }
+
+    @Test
+    void newKeyReplacesMinimumCounter() {
+        SpaceSaving<String> top = new SpaceSaving<>(2);
+        top.offer("a", 10, Long.MAX_VALUE);
+        top.offer("b", 3, Long.MAX_VALUE);
+        top.offer("c", 1, Long.MAX_VALUE);
+
+        assertThat(top.get("b")).isNull();
+        assertThat(top.get("c")).isEqualTo(new SpaceSaving.Item<>("c", 4, 3));
+        assertThat(top.get("a").count()).isEqualTo(10);
+    }
+
+    @Test
+    void replacementIsCappedBySketchUpperBound() {
+        SpaceSaving<String> top = new SpaceSaving<>(1);
+        top.offer("a", 10, Long.MAX_VALUE);
+        top.offer("b", 1, 5);
+        top.offer("c", 1, 12);
+
+        assertThat(top.get("a")).isNull();
+        assertThat(top.get("b")).isNull();
+        assertThat(top.get("c")).isEqualTo(new SpaceSaving.Item<>("c", 11, 10));
+    }
+
+    @Test
+    void heavyHittersAreTrackedWithGuaranteedBounds() {
+        SpaceSaving<Integer> top = new SpaceSaving<>(50);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(10) < 5 ? random.nextInt(10) : 10 + random.nextInt(100_000);
+            top.offer(key, 1, Long.MAX_VALUE);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        for (int key = 0; key < 10; key++) {
+            SpaceSaving.Item<Integer> item = top.get(key);
+            assertThat(item).isNotNull();
+            assertThat(item.count()).isGreaterThanOrEqualTo(exact.get(key));
+            assertThat(item.count() - item.error()).isLessThanOrEqualTo(exact.get(key));
+        }
+        assertThat(top.items()).hasSize(50);
+    }
+}
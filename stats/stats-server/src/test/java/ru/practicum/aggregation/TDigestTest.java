@@ -0,0 +1,145 @@
+package ru.practicum.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class TDigestTest {
+    private static final int VALUES = 100_000;
+
+    @Test
+    void emptyDigestHasNoQuantiles() {
+        TDigest digest = new TDigest(100);
+
+        assertThat(digest.getCount()).isZero();
+        assertThat(digest.quantile(0.5)).isNaN();
+        assertThat(digest.getMin()).isNaN();
+        assertThat(digest.getMax()).isNaN();
+    }
+
+    @Test
+    void singleValueIsEveryQuantile() {
+        TDigest digest = new TDigest(100);
+        digest.add(42);
+
+        assertThat(digest.quantile(0)).isEqualTo(42);
+        assertThat(digest.quantile(0.99)).isEqualTo(42);
+    }
+
+    @Test
+    void quantilesOfUniformValuesAreAccurate() {
+        TDigest digest = digest(shuffled(0, VALUES, 1));
+
+        assertThat(digest.getCount()).isEqualTo(VALUES);
+        assertThat(digest.quantile(0.5)).isCloseTo(VALUES * 0.5, within(VALUES * 0.01));
+        assertThat(digest.quantile(0.95)).isCloseTo(VALUES * 0.95, within(VALUES * 0.005));
+        assertThat(digest.quantile(0.99)).isCloseTo(VALUES * 0.99, within(VALUES * 0.002));
+        assertThat(digest.quantile(0.999)).isCloseTo(VALUES * 0.999, within(VALUES * 0.001));
+    }
+
+    @Test
+    void tailQuantilesOfSkewedLatenciesAreAccurate() {
+        Random random = new Random(3);
+        List<Double> values = new ArrayList<>(VALUES);
+        for (int i = 0; i < VALUES; i++) {
+            values.add(Math.exp(random.nextGaussian()) * 50);
+        }
+        TDigest digest = digest(values);
+        Collections.sort(values);
+
+        for (double q : new double[]{0.5, 0.95, 0.99}) {
+            double exact = values.get((int) (q * VALUES));
+            assertThat(digest.quantile(q)).isCloseTo(exact, within(exact * 0.02));
+        }
+    }
+
+    @Test
+    void extremesMatchMinAndMax() {
+        TDigest digest = digest(shuffled(10, 1000, 2));
+
+        assertThat(digest.getMin()).isEqualTo(10);
+        assertThat(digest.getMax()).isEqualTo(1009);
+        assertThat(digest.quantile(0)).isEqualTo(10);
+        assertThat(digest.quantile(1)).isEqualTo(1009);
+    }
+
+    @Test
+    void mergedDigestMatchesDigestOfAllValues() {
+        List<Double> values = shuffled(0, VALUES, 4);
+        TDigest left = digest(values.subList(0, VALUES / 2));
+        TDigest right = digest(values.subList(VALUES / 2, VALUES));
+        TDigest all = digest(values);
+
+        TDigest merged = left.merge(right);
+
+        assertThat(merged.getCount()).isEqualTo(VALUES);
+        assertThat(merged.getMin()).isEqualTo(all.getMin());
+        assertThat(merged.getMax()).isEqualTo(all.getMax());
+        for (double q : new double[]{0.5, 0.95, 0.99}) {
+            assertThat(merged.quantile(q)).isCloseTo(all.quantile(q), within(VALUES * 0.005));
+        }
+    }
+
+    @Test
+    void mergeWithEmptyDigestChangesNothing() {
+        TDigest digest = digest(shuffled(0, 1000, 5));
+        double median = digest.quantile(0.5);
+
+        digest.merge(new TDigest(100));
+
+        assertThat(digest.getCount()).isEqualTo(1000);
+        assertThat(digest.quantile(0.5)).isEqualTo(median);
+    }
+
+    @Test
+    void digestRoundTripsThroughBytes() {
+        TDigest digest = digest(shuffled(0, VALUES, 6));
+
+        TDigest restored = TDigest.fromBytes(digest.toBytes());
+
+        assertThat(restored.getCount()).isEqualTo(digest.getCount());
+        assertThat(restored.getMin()).isEqualTo(digest.getMin());
+        assertThat(restored.getMax()).isEqualTo(digest.getMax());
+        for (double q : new double[]{0, 0.5, 0.95, 0.99, 1}) {
+            assertThat(restored.quantile(q)).isEqualTo(digest.quantile(q));
+        }
+        assertThat(restored.toBytes()).isEqualTo(digest.toBytes());
+    }
+
+    @Test
+    void emptyDigestRoundTripsThroughBytes() {
+        TDigest restored = TDigest.fromBytes(new TDigest(100).toBytes());
+
+        assertThat(restored.getCount()).isZero();
+        assertThat(restored.getMax()).isNaN();
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThatThrownBy(() -> new TDigest(5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TDigest(100).quantile(1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TDigest.fromBytes(new byte[]{9})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TDigest digest(List<Double> values) {
+        TDigest digest = new TDigest(100);
+        values.forEach(digest::add);
+        return digest;
+    }
+
+    private static List<Double> shuffled(int from, int count, long seed) {
+        List<Double> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add((double) (from + i));
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+}
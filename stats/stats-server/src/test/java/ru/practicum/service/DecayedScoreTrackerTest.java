@@ -0,0 +1,127 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.UriTemplate;
+import ru.practicum.storage.EndpointHitsRollupRepository;
+import ru.practicum.storage.UriTemplateRegistry;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DecayedScoreTrackerTest {
+    private static final UriTemplate EVENTS = new UriTemplate(1, "/events/{id}");
+
+    @Test
+    void hitsRecordedDuringRebaseAreKept() throws InterruptedException {
+        DecayedScoreTracker tracker = tracker(new StubRollups(0));
+        tracker.rebuild();
+
+        int threads = 4;
+        int hitsPerThread = 2000;
+        LocalDateTime timestamp = LocalDateTime.now().minusMinutes(2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread writer = new Thread(() -> {
+                awaitQuietly(start);
+                for (int j = 0; j < hitsPerThread; j++) {
+                    tracker.onHits(List.of(hit("/events/1", timestamp)));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        Thread rebaser = new Thread(() -> {
+            awaitQuietly(start);
+            while (!done.get()) {
+                tracker.rebaseTo(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+            }
+        });
+        rebaser.start();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        rebaser.join();
+
+        double score = tracker.getScores(EVENTS, List.of(1L)).get(0).getScore();
+        assertThat(score).isCloseTo(threads * hitsPerThread, within(threads * hitsPerThread * 0.01));
+    }
+
+    @Test
+    void rebuildReplacesScoresWithRollupsIncludingCurrentMinute() {
+        StubRollups rollups = new StubRollups(5);
+        DecayedScoreTracker tracker = tracker(rollups);
+        tracker.onHits(List.of(hit("/events/1", LocalDateTime.now())));
+
+        tracker.rebuild();
+
+        assertThat(rollups.minuteTo).isAfter(LocalDateTime.now());
+        assertThat(tracker.getScores(EVENTS, List.of(1L)).get(0).getScore()).isCloseTo(5.0, within(0.05));
+    }
+
+    @Test
+    void hitsAfterRebuildAreCounted() {
+        DecayedScoreTracker tracker = tracker(new StubRollups(0));
+        tracker.rebuild();
+
+        tracker.onHits(List.of(hit("/events/2", LocalDateTime.now()), hit("/events/2", LocalDateTime.now())));
+
+        assertThat(tracker.getScores(EVENTS, List.of(2L)).get(0).getScore()).isCloseTo(2.0, within(0.01));
+    }
+
+    private static DecayedScoreTracker tracker(EndpointHitsRollupRepository rollups) {
+        UriTemplateRegistry registry = new UriTemplateRegistry(null, List.of()) {
+            @Override
+            public Optional<TemplateMatch> match(String uri) {
+                return EVENTS.entityId(uri).map(entityId -> new TemplateMatch(EVENTS, entityId));
+            }
+        };
+        return new DecayedScoreTracker(registry, rollups, true, 24, 10);
+    }
+
+    private static EndpointHistory hit(String uri, LocalDateTime timestamp) {
+        return new EndpointHistory(uri, "10.0.0.1", timestamp);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class StubRollups extends EndpointHitsRollupRepository {
+        private final long currentMinuteHits;
+        private LocalDateTime minuteTo;
+
+        StubRollups(long currentMinuteHits) {
+            super(null);
+            this.currentMinuteHits = currentMinuteHits;
+        }
+
+        @Override
+        public void streamEntityHits(Granularity granularity, LocalDateTime from, LocalDateTime to, EntityHitsHandler handler) {
+            if (granularity == Granularity.MINUTE) {
+                minuteTo = to;
+                if (currentMinuteHits > 0) {
+                    handler.accept(EVENTS.getId(), 1L, Granularity.MINUTE.floor(LocalDateTime.now()), currentMinuteHits);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.QuerySegment;
+import ru.practicum.storage.HotWindowHitStore;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsQueryPlannerTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 10, 0, 0);
+
+    private final StatsQueryPlanner planner = new StatsQueryPlanner(0);
+
+    @Test
+    void alignedDayRangeIsOneDaySegment() {
+        List<QuerySegment> segments = planner.plan(DAY, DAY.plusDays(2));
+
+        assertThat(segments).containsExactly(new QuerySegment(Granularity.DAY, DAY, DAY.plusDays(2)));
+    }
+
+    @Test
+    void unalignedRangeUsesCoarsestBucketsInsideAndRawEdges() {
+        LocalDateTime from = DAY.plusHours(10).plusMinutes(15).plusSeconds(30);
+        LocalDateTime to = DAY.plusDays(2).plusHours(5).plusMinutes(45).plusSeconds(10);
+
+        List<QuerySegment> segments = planner.plan(from, to);
+
+        assertThat(segments).containsExactly(
+                QuerySegment.raw(from, DAY.plusHours(10).plusMinutes(16)),
+                new QuerySegment(Granularity.MINUTE, DAY.plusHours(10).plusMinutes(16), DAY.plusHours(11)),
+                new QuerySegment(Granularity.HOUR, DAY.plusHours(11), DAY.plusDays(1)),
+                new QuerySegment(Granularity.DAY, DAY.plusDays(1), DAY.plusDays(2)),
+                new QuerySegment(Granularity.HOUR, DAY.plusDays(2), DAY.plusDays(2).plusHours(5)),
+                new QuerySegment(Granularity.MINUTE, DAY.plusDays(2).plusHours(5), DAY.plusDays(2).plusHours(5).plusMinutes(45)),
+                QuerySegment.raw(DAY.plusDays(2).plusHours(5).plusMinutes(45), to));
+    }
+
+    @Test
+    void rangeInsideOneMinuteIsRaw() {
+        LocalDateTime from = DAY.plusSeconds(10);
+        LocalDateTime to = DAY.plusSeconds(50);
+
+        assertThat(planner.plan(from, to)).containsExactly(QuerySegment.raw(from, to));
+    }
+
+    @Test
+    void emptyRangeHasNoSegments() {
+        assertThat(planner.plan(DAY, DAY)).isEmpty();
+        assertThat(planner.plan(DAY.plusHours(1), DAY)).isEmpty();
+    }
+
+    @Test
+    void bucketBoundariesAreHalfOpen() {
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(DAY.plusHours(1));
+
+        List<QuerySegment> segments = planner.plan(DAY, to);
+
+        assertThat(segments).containsExactly(
+                new QuerySegment(Granularity.HOUR, DAY, DAY.plusHours(1)),
+                QuerySegment.raw(DAY.plusHours(1), to));
+    }
+
+    @Test
+    void randomRangesAreCoveredExactlyOnce() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime from = DAY.plusSeconds(random.nextInt(5 * 86400));
+            LocalDateTime to = from.plusSeconds(random.nextInt(5 * 86400));
+
+            assertCovers(planner.plan(from, to), from, to);
+            assertCovers(planner.planUnique(from, to), from, to);
+            assertCovers(planner.planSeries(from, to, Granularity.HOUR), from, to);
+        }
+    }
+
+    @Test
+    void uniquePlanUsesOnlyHourlySketches() {
+        LocalDateTime from = DAY.plusMinutes(30);
+        LocalDateTime to = DAY.plusDays(3).plusMinutes(30);
+
+        List<QuerySegment> segments = planner.planUnique(from, to);
+
+        assertThat(segments).containsExactly(
+                QuerySegment.raw(from, DAY.plusHours(1)),
+                new QuerySegment(Granularity.HOUR, DAY.plusHours(1), DAY.plusDays(3)),
+                QuerySegment.raw(DAY.plusDays(3), to));
+    }
+
+    @Test
+    void seriesPlanDoesNotUseBucketsCoarserThanStep() {
+        List<QuerySegment> segments = planner.planSeries(DAY, DAY.plusDays(2), Granularity.HOUR);
+
+        assertThat(segments).containsExactly(new QuerySegment(Granularity.HOUR, DAY, DAY.plusDays(2)));
+    }
+
+    @Test
+    void rawEdgesOlderThanRetentionAreWidenedToFinestRollup() {
+        StatsQueryPlanner retained = new StatsQueryPlanner(1);
+        LocalDateTime from = DAY.plusSeconds(15);
+        LocalDateTime to = DAY.plusHours(2).plusSeconds(45);
+
+        List<QuerySegment> segments = retained.plan(from, to);
+
+        assertThat(segments).noneMatch(QuerySegment::isRaw);
+        assertThat(segments.get(0)).isEqualTo(new QuerySegment(Granularity.MINUTE, DAY, DAY.plusMinutes(1)));
+        assertThat(segments.get(segments.size() - 1))
+                .isEqualTo(new QuerySegment(Granularity.MINUTE, DAY.plusHours(2), DAY.plusHours(2).plusMinutes(1)));
+    }
+
+    @Test
+    void rawEdgesInsideRetentionStayRaw() {
+        StatsQueryPlanner retained = new StatsQueryPlanner(1);
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime from = to.minusHours(3).withSecond(17);
+
+        List<QuerySegment> segments = retained.plan(from, to);
+
+        assertThat(segments.get(0).isRaw()).isTrue();
+        assertCovers(segments, from, to);
+    }
+
+    @Test
+    void minuteUniqueSeriesOlderThanRetentionIsRejected() {
+        StatsQueryPlanner retained = new StatsQueryPlanner(1);
+        LocalDateTime to = LocalDateTime.now();
+
+        assertThatThrownBy(() -> retained.planUniqueSeries(to.minusDays(3), to, Granularity.MINUTE))
+                .isInstanceOf(ValidationException.class);
+        assertThat(retained.planUniqueSeries(to.minusDays(3), to, Granularity.HOUR)).isNotEmpty();
+        assertThat(retained.planUniqueSeries(to.minusHours(3), to, Granularity.MINUTE)).containsExactly(QuerySegment.raw(to.minusHours(3), to));
+    }
+
+    @Test
+    void storedPlanAndHotWindowMeetAtSplit() {
+        HotWindowHitStore hotWindow = hotWindow();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusDays(2);
+        LocalDateTime to = StatsQueryPlanner.exclusiveEnd(now.plusMinutes(1));
+
+        LocalDateTime split = hotWindow.split(from, to);
+
+        assertThat(split).isAfter(from).isBefore(to);
+        assertCovers(planner.plan(from, split), from, split);
+    }
+
+    @Test
+    void rangeBeforeHotWindowIsServedFromStorageOnly() {
+        HotWindowHitStore hotWindow = hotWindow();
+        LocalDateTime to = LocalDateTime.now().minusHours(1);
+        LocalDateTime from = to.minusDays(1);
+
+        assertThat(hotWindow.split(from, to)).isEqualTo(to);
+    }
+
+    @Test
+    void rangeInsideHotWindowIsServedFromMemoryOnly() {
+        HotWindowHitStore hotWindow = hotWindow();
+        LocalDateTime from = LocalDateTime.now().plusSeconds(1);
+        LocalDateTime to = from.plusMinutes(5);
+
+        LocalDateTime split = hotWindow.split(from, to);
+
+        assertThat(split).isEqualTo(from);
+        assertThat(planner.plan(from, split)).isEmpty();
+    }
+
+    @Test
+    void advancedHotWindowMovesSplit() {
+        HotWindowHitStore hotWindow = hotWindow();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusDays(1);
+        LocalDateTime to = now.plusHours(1);
+
+        hotWindow.advanceWindowStart(now.plusMinutes(10));
+        LocalDateTime split = hotWindow.split(from, to);
+
+        assertThat(split).isAfter(now.plusMinutes(10)).isBefore(now.plusMinutes(11));
+        assertCovers(planner.plan(from, split), from, split);
+    }
+
+    @Test
+    void scanWithStaleSplitIsRejectedAfterWindowMoves() {
+        HotWindowHitStore hotWindow = hotWindow();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusDays(1);
+        LocalDateTime to = now.plusHours(1);
+
+        LocalDateTime split = hotWindow.split(from, to);
+        assertThat(hotWindow.countHits(split, to, null)).hasValue(Map.of());
+
+        hotWindow.advanceWindowStart(now.plusMinutes(10));
+
+        assertThat(hotWindow.countHits(split, to, null)).isEmpty();
+        assertThat(hotWindow.collectVisitors(split, to, null)).isEmpty();
+        assertThat(hotWindow.countHits(hotWindow.split(from, to), to, null)).hasValue(Map.of());
+    }
+
+    private static HotWindowHitStore hotWindow() {
+        return new HotWindowHitStore(6, 1000, 100, null,
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    private static void assertCovers(List<QuerySegment> segments, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime cursor = from;
+        for (QuerySegment segment : segments) {
+            assertThat(segment.getFrom()).isEqualTo(cursor);
+            assertThat(segment.getTo()).isAfter(segment.getFrom());
+            if (!segment.isRaw()) {
+                assertThat(segment.getGranularity().floor(segment.getFrom())).isEqualTo(segment.getFrom());
+                assertThat(segment.getGranularity().floor(segment.getTo())).isEqualTo(segment.getTo());
+            }
+            cursor = segment.getTo();
+        }
+        assertThat(cursor).isEqualTo(from.isBefore(to) ? to : from);
+    }
+}
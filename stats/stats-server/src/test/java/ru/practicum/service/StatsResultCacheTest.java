@@ -0,0 +1,122 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+import ru.practicum.model.Granularity;
+import ru.practicum.model.Statistic;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 10, 12, 0, 30);
+    private static final LocalDateTime END = START.plusMinutes(5);
+    private static final App APP = new App(1, "ewm-main-service");
+
+    private final StatsResultCache cache = new StatsResultCache(100, 60_000, Granularity.MINUTE,
+            new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    private final List<LocalDateTime[]> loads = new ArrayList<>();
+
+    @Test
+    void loadsExactCallerBounds() {
+        List<LocalDateTime> hits = List.of(START.minusSeconds(30), START, END, END.plusSeconds(30));
+
+        List<Statistic> statistics = cache.get(START, END, null, false, false, null, loader(hits));
+
+        assertThat(loads).hasSize(1);
+        assertThat(loads.get(0)).containsExactly(START, END);
+        assertThat(statistics).singleElement().extracting(Statistic::getHits).isEqualTo(2);
+    }
+
+    @Test
+    void secondPrecisionRequestsInTheSameMinuteShareOneLoad() {
+        List<LocalDateTime> hits = List.of(START, START.plusSeconds(20));
+
+        List<Statistic> first = cache.get(START, END, List.of("/events/1"), false, false, null, loader(hits));
+        List<Statistic> second = cache.get(START.plusSeconds(15), END.plusSeconds(15), List.of("/events/1"), false, false, null,
+                loader(hits));
+
+        assertThat(loads).hasSize(1);
+        assertThat(second).isEqualTo(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void hitsOutsideTheRangeDoNotOutdateIt() {
+        StatsResultCache strict = new StatsResultCache(100, 0, Granularity.MINUTE,
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        List<LocalDateTime> hits = List.of(START);
+
+        strict.get(START, END, List.of("/events/1"), false, false, null, loader(hits));
+        strict.onHits(List.of(hit("/events/1", END.plusMinutes(1))));
+        strict.onHits(List.of(hit("/events/2", START)));
+        strict.get(START, END, List.of("/events/1"), false, false, null, loader(hits));
+        assertThat(loads).hasSize(1);
+
+        strict.onHits(List.of(hit("/events/1", START.plusMinutes(1))));
+        strict.get(START, END, List.of("/events/1"), false, false, null, loader(hits));
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    void viewsLoadOnlyMissingWindows() {
+        List<Map<String, LocalDateTime>> viewLoads = new ArrayList<>();
+        BiFunction<Map<String, LocalDateTime>, LocalDateTime, Map<String, Long>> loader = (windows, end) -> {
+            viewLoads.add(windows);
+            Map<String, Long> views = new HashMap<>();
+            windows.keySet().forEach(uri -> views.put(uri, 7L));
+            return views;
+        };
+
+        cache.getViews(Map.of("/events/1", START), END, false, loader);
+        Map<String, Long> views = cache.getViews(Map.of("/events/1", START.plusSeconds(10), "/events/2", START), END.plusSeconds(5),
+                false, loader);
+
+        assertThat(viewLoads).hasSize(2);
+        assertThat(viewLoads.get(1)).containsOnlyKeys("/events/2");
+        assertThat(views).containsEntry("/events/1", 7L).containsEntry("/events/2", 7L);
+    }
+
+    @Test
+    void alignedRangeIsServedFromCacheUntilInvalidated() {
+        LocalDateTime start = Granularity.MINUTE.floor(START);
+        List<LocalDateTime> hits = List.of(start);
+
+        cache.get(start, END.withSecond(0), List.of("/events/1"), false, false, null, loader(hits));
+        cache.get(start, END.withSecond(0), List.of("/events/1"), false, false, null, loader(hits));
+        assertThat(loads).hasSize(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        cache.invalidate();
+        cache.get(start, END.withSecond(0), List.of("/events/1"), false, false, null, loader(hits));
+        assertThat(loads).hasSize(1);
+
+        StatsResultCache strict = new StatsResultCache(100, 0, Granularity.MINUTE,
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        strict.get(start, END.withSecond(0), null, false, false, null, loader(hits));
+        strict.invalidate();
+        strict.get(start, END.withSecond(0), null, false, false, null, loader(hits));
+        assertThat(loads).hasSize(3);
+    }
+
+    private static EndpointHistory hit(String uri, LocalDateTime timestamp) {
+        return new EndpointHistory(uri, "10.0.0.1", timestamp);
+    }
+
+    private BiFunction<LocalDateTime, LocalDateTime, List<Statistic>> loader(List<LocalDateTime> hits) {
+        return (from, to) -> {
+            loads.add(new LocalDateTime[]{from, to});
+            int count = (int) hits.stream().filter(hit -> !hit.isBefore(from) && !hit.isAfter(to)).count();
+            return List.of(new Statistic(APP, "/events/1", count));
+        };
+    }
+}
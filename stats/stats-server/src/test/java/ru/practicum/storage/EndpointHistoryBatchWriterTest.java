@@ -0,0 +1,106 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EndpointHistoryBatchWriterTest {
+    private static final App APP = new App(1, "ewm-main-service");
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 12, 0, 0);
+
+    private final RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+
+    @Test
+    void bufferedWriteIsCappedDroppingOldest() {
+        EndpointHistoryBatchWriter writer = writer(2, 3);
+        jdbcTemplate.timingOut.add(1);
+        writer.write(List.of(hit(1), hit(2)));
+
+        writer.write(List.of(hit(3), hit(4)));
+        writer.write(List.of(hit(5)));
+        jdbcTemplate.timingOut.clear();
+        writer.flush();
+
+        assertThat(jdbcTemplate.inserted).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    void failedChunkDoesNotBlockTheRest() {
+        EndpointHistoryBatchWriter writer = writer(2, 100);
+        jdbcTemplate.timingOut.add(1);
+
+        writer.write(List.of(hit(1), hit(2), hit(3), hit(4)));
+        assertThat(jdbcTemplate.inserted).containsExactly(3, 4);
+
+        jdbcTemplate.timingOut.clear();
+        writer.flush();
+        assertThat(jdbcTemplate.inserted).containsExactly(3, 4, 1, 2);
+    }
+
+    @Test
+    void integrityViolationIsNotRetried() {
+        EndpointHistoryBatchWriter writer = writer(2, 100);
+        jdbcTemplate.invalid.add(1);
+
+        writer.write(List.of(hit(1), hit(2), hit(3), hit(4)));
+        writer.flush();
+
+        assertThat(jdbcTemplate.inserted).containsExactly(3, 4);
+        assertThat(jdbcTemplate.attempts).isEqualTo(2);
+    }
+
+    private EndpointHistoryBatchWriter writer(int batchSize, int maxBuffered) {
+        return new EndpointHistoryBatchWriter(jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(EndpointHitsRollupRepository.class),
+                mock(EndpointUniquesRepository.class),
+                mock(EndpointVisitorsRepository.class),
+                mock(EndpointHistoryPartitionManager.class),
+                List.of(), batchSize, true, maxBuffered);
+    }
+
+    private static EndpointHistory hit(int uriId) {
+        EndpointHistory hit = new EndpointHistory("/events/" + uriId, "10.0.0.1", NOW);
+        hit.setApp(APP);
+        hit.setUriId(uriId);
+        return hit;
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        private final List<Integer> inserted = new ArrayList<>();
+        private final Set<Integer> timingOut = new HashSet<>();
+        private final Set<Integer> invalid = new HashSet<>();
+        private int attempts;
+
+        @Override
+        public int update(String sql, Object... args) {
+            attempts++;
+            List<Integer> uriIds = new ArrayList<>();
+            for (int i = 1; i < args.length; i += 5) {
+                uriIds.add((Integer) args[i]);
+            }
+            if (uriIds.stream().anyMatch(timingOut::contains)) {
+                throw new QueryTimeoutException("timeout");
+            }
+            if (uriIds.stream().anyMatch(invalid::contains)) {
+                throw new DataIntegrityViolationException("invalid");
+            }
+            inserted.addAll(uriIds);
+            return uriIds.size();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.practicum.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.model.App;
+import ru.practicum.model.EndpointHistory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestSpoolTest {
+    private static final App APP = new App(1, "ewm-main-service");
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 12, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    private final OffsetJdbcTemplate jdbcTemplate = new OffsetJdbcTemplate();
+    private final List<EndpointHistory> written = new ArrayList<>();
+    private final EndpointHistoryBatchWriter writer = mock(EndpointHistoryBatchWriter.class);
+    private final AppDictionary appDictionary = mock(AppDictionary.class);
+    private final UriDictionary uriDictionary = mock(UriDictionary.class);
+    private boolean failing;
+
+    @BeforeEach
+    void setUp() {
+        when(appDictionary.getById(anyInt())).thenReturn(Optional.of(APP));
+        when(uriDictionary.getUri(anyInt())).thenAnswer(invocation -> Optional.of("/events/" + invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            if (failing) {
+                throw new IllegalStateException("insert failed");
+            }
+            written.addAll(invocation.getArgument(0));
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(writer).writeNow(anyList(), any());
+    }
+
+    @Test
+    void appendedHitsAreDrainedWithTheirFields() throws IOException {
+        IngestSpool spool = spool(4096);
+        EndpointHistory hit = hit(5);
+        hit.setRepeatCount(3);
+
+        spool.append(List.of(hit));
+        spool.drain();
+
+        assertThat(written).hasSize(1);
+        EndpointHistory drained = written.get(0);
+        assertThat(drained.getApp()).isEqualTo(APP);
+        assertThat(drained.getUriId()).isEqualTo(5);
+        assertThat(drained.getUri()).isEqualTo("/events/5");
+        assertThat(drained.getIp()).isEqualTo("10.0.0.1");
+        assertThat(drained.getRequestTimestamp()).isEqualTo(NOW);
+        assertThat(drained.getRepeatCount()).isEqualTo(3);
+        assertThat(spool.getBacklogBytes()).isZero();
+        spool.close();
+    }
+
+    @Test
+    void restartResumesFromSavedOffset() throws IOException {
+        IngestSpool spool = spool(4096);
+        spool.append(List.of(hit(1), hit(2), hit(3)));
+        spool.drain();
+        spool.close();
+
+        IngestSpool restarted = spool(4096);
+        restarted.drain();
+        assertThat(written).extracting(EndpointHistory::getUriId).containsExactly(1, 2, 3);
+
+        restarted.append(List.of(hit(4)));
+        restarted.drain();
+        assertThat(written).extracting(EndpointHistory::getUriId).containsExactly(1, 2, 3, 4);
+        restarted.close();
+    }
+
+    @Test
+    void failedDrainKeepsOffsetAndIsReplayedAfterRestart() throws IOException {
+        IngestSpool spool = spool(4096);
+        spool.append(List.of(hit(1), hit(2), hit(3)));
+        spool.drain();
+        spool.append(List.of(hit(4)));
+        failing = true;
+        spool.drain();
+
+        assertThat(written).extracting(EndpointHistory::getUriId).containsExactly(1, 2, 3);
+        assertThat(spool.getBacklogBytes()).isPositive();
+
+        failing = false;
+        IngestSpool restarted = spool(4096);
+        restarted.drain();
+
+        assertThat(written).extracting(EndpointHistory::getUriId).containsExactly(1, 2, 3, 4);
+        assertThat(restarted.getBacklogBytes()).isZero();
+        restarted.close();
+    }
+
+    @Test
+    void drainedSealedSegmentsAreDeleted() throws IOException {
+        IngestSpool spool = spool(100);
+        spool.append(List.of(hit(1), hit(2), hit(3), hit(4), hit(5)));
+        assertThat(segmentFiles()).isGreaterThan(2);
+
+        spool.drain();
+
+        assertThat(written).extracting(EndpointHistory::getUriId).containsExactly(1, 2, 3, 4, 5);
+        assertThat(segmentFiles()).isEqualTo(1);
+        spool.close();
+    }
+
+    private IngestSpool spool(int segmentSize) throws IOException {
+        IngestSpool spool = new IngestSpool(jdbcTemplate, writer, appDictionary, uriDictionary, true,
+                directory.toString(), segmentSize, 2, false,
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        spool.open();
+        return spool;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static EndpointHistory hit(int uriId) {
+        EndpointHistory hit = new EndpointHistory("/events/" + uriId, "10.0.0.1", NOW);
+        hit.setApp(APP);
+        hit.setUriId(uriId);
+        return hit;
+    }
+
+    private static class OffsetJdbcTemplate extends JdbcTemplate {
+        private Long segment;
+        private Integer position;
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            if (segment == null) {
+                return;
+            }
+            ResultSet resultSet = mock(ResultSet.class);
+            try {
+                when(resultSet.getLong("segment")).thenReturn(segment);
+                when(resultSet.getInt("position")).thenReturn(position);
+                rch.processRow(resultSet);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            segment = (Long) args[0];
+            position = (Integer) args[1];
+            return 1;
+        }
+    }
+}
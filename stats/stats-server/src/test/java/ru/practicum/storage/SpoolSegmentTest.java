@@ -0,0 +1,140 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolSegmentTest {
+    private static final int SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadBackInOrder() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 1, SIZE);
+        segment.append(bytes("first"));
+        segment.append(bytes("second"));
+
+        List<String> records = new ArrayList<>();
+        int position = segment.read(0, Integer.MAX_VALUE, record -> records.add(string(record)));
+
+        assertThat(records).containsExactly("first", "second");
+        assertThat(position).isEqualTo(segment.getWritePosition());
+        segment.close();
+    }
+
+    @Test
+    void readResumesFromReturnedPosition() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 1, SIZE);
+        for (int i = 0; i < 5; i++) {
+            segment.append(bytes("record-" + i));
+        }
+
+        List<String> first = new ArrayList<>();
+        int position = segment.read(0, 2, record -> first.add(string(record)));
+        List<String> rest = new ArrayList<>();
+        segment.read(position, Integer.MAX_VALUE, record -> rest.add(string(record)));
+
+        assertThat(first).containsExactly("record-0", "record-1");
+        assertThat(rest).containsExactly("record-2", "record-3", "record-4");
+        segment.close();
+    }
+
+    @Test
+    void reopenedSegmentRecoversWritePositionAndResumesFromOffset() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 7, SIZE);
+        segment.append(bytes("drained"));
+        int offset = segment.getWritePosition();
+        segment.append(bytes("pending"));
+        int written = segment.getWritePosition();
+        segment.force();
+        segment.close();
+
+        SpoolSegment reopened = SpoolSegment.open(directory, 7, SIZE);
+        List<String> records = new ArrayList<>();
+        reopened.read(offset, Integer.MAX_VALUE, record -> records.add(string(record)));
+
+        assertThat(reopened.getWritePosition()).isEqualTo(written);
+        assertThat(records).containsExactly("pending");
+        reopened.close();
+    }
+
+    @Test
+    void tornTailIsDroppedAndOverwrittenOnRecovery() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 1, SIZE);
+        segment.append(bytes("complete"));
+        int complete = segment.getWritePosition();
+        segment.force();
+        segment.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve(SpoolSegment.fileName(1)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES * 2 + 3).putInt(100).putInt(0).put(bytes("tor")).flip(), complete);
+        }
+
+        SpoolSegment recovered = SpoolSegment.open(directory, 1, SIZE);
+        recovered.append(bytes("after"));
+        List<String> records = new ArrayList<>();
+        recovered.read(0, Integer.MAX_VALUE, record -> records.add(string(record)));
+
+        assertThat(records).containsExactly("complete", "after");
+        recovered.close();
+    }
+
+    @Test
+    void recordWithBadChecksumStopsReading() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 1, SIZE);
+        segment.append(bytes("good"));
+        int corrupted = segment.getWritePosition();
+        segment.append(bytes("flipped"));
+        segment.append(bytes("unreachable"));
+        segment.force();
+        segment.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve(SpoolSegment.fileName(1)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes("X")), corrupted + Integer.BYTES * 2);
+        }
+
+        SpoolSegment recovered = SpoolSegment.open(directory, 1, SIZE);
+        List<String> records = new ArrayList<>();
+        int position = recovered.read(0, Integer.MAX_VALUE, record -> records.add(string(record)));
+
+        assertThat(records).containsExactly("good");
+        assertThat(position).isEqualTo(corrupted);
+        assertThat(recovered.getWritePosition()).isEqualTo(corrupted);
+        recovered.close();
+    }
+
+    @Test
+    void appendFailsWhenSegmentIsFull() throws IOException {
+        SpoolSegment segment = SpoolSegment.open(directory, 1, 32);
+
+        assertThat(segment.append(new byte[16])).isTrue();
+        assertThat(segment.append(new byte[16])).isFalse();
+        assertThat(segment.getWritePosition()).isEqualTo(24);
+        segment.close();
+    }
+
+    @Test
+    void fileNameRoundTripsSequence() {
+        assertThat(SpoolSegment.parseSequence(Path.of(SpoolSegment.fileName(42)))).isEqualTo(42);
+        assertThat(SpoolSegment.parseSequence(Path.of("spool-abc.dat"))).isNull();
+        assertThat(SpoolSegment.parseSequence(Path.of("other.dat"))).isNull();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer record) {
+        return StandardCharsets.UTF_8.decode(record).toString();
+    }
+}